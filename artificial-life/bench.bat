@@ -0,0 +1,2 @@
+java.exe --add-modules jdk.incubator.vector -cp bin brain.KernelBenchmark %*
+java.exe -cp bin brain.ActivationBenchmark
@@ -0,0 +1,3 @@
+#!/bin/sh
+java --add-modules jdk.incubator.vector -cp bin brain.KernelBenchmark "$@"
+java -cp bin brain.ActivationBenchmark
@@ -1 +1,2 @@
-javac.exe -cp src -d bin src\ui\ControlWindow.java
+javac.exe -cp src -d bin src\ui\ControlWindow.java src\cli\HeadlessTrainer.java src\brain\InferenceCheck.java src\brain\KernelBenchmark.java src\brain\ActivationBenchmark.java src\life\HallOfFameCheck.java src\life\AllocationCheck.java src\life\DeterminismCheck.java
+javac.exe --add-modules jdk.incubator.vector -cp src -d bin src\brain\VectorKernels.java || echo Vector API not available, using scalar kernels
@@ -1,2 +1,3 @@
 #!/bin/sh
-javac -cp src/ -d bin/ src/ui/ControlWindow.java
+javac -cp src/ -d bin/ src/ui/ControlWindow.java src/cli/HeadlessTrainer.java src/brain/InferenceCheck.java src/brain/KernelBenchmark.java src/brain/ActivationBenchmark.java src/life/HallOfFameCheck.java src/life/AllocationCheck.java src/life/DeterminismCheck.java
+javac --add-modules jdk.incubator.vector -cp src/ -d bin/ src/brain/VectorKernels.java || echo "Vector API not available, using scalar kernels"
@@ -0,0 +1,4 @@
+java.exe -cp bin brain.InferenceCheck %* || exit /b 1
+java.exe -cp bin life.HallOfFameCheck || exit /b 1
+java.exe -cp bin life.AllocationCheck || exit /b 1
+java.exe -cp bin life.DeterminismCheck || exit /b 1
@@ -0,0 +1,5 @@
+#!/bin/sh
+java -cp bin brain.InferenceCheck "$@" || exit 1
+java -cp bin life.HallOfFameCheck || exit 1
+java -cp bin life.AllocationCheck || exit 1
+java -cp bin life.DeterminismCheck || exit 1
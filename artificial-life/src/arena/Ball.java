@@ -3,6 +3,7 @@ package arena;
 import java.awt.Color;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.SplittableRandom;
 
 public class Ball {
 
@@ -16,6 +17,9 @@ public class Ball {
 
 	final Color color;
 
+	// Stream for teleporting this ball
+	final SplittableRandom random;
+
 	final double size; // % of display
 
 	final double maxBallEnergy = Double.MAX_VALUE; // Double.MAX_VALUE;
@@ -26,7 +30,13 @@ public class Ball {
 	}
 
 	public Ball(double size, double xPos, double yPos, double xVel, double yVel, Color color) {
+		this(size, xPos, yPos, xVel, yVel, color, new SplittableRandom());
+	}
+
+	public Ball(double size, double xPos, double yPos, double xVel, double yVel, Color color,
+			final SplittableRandom random) {
 		this.size = size;
+		this.random = random;
 		
 		this.xPos = xPos;
 		this.yPos = yPos;
@@ -37,23 +47,39 @@ public class Ball {
 		this.color = color;
 	}
 
-	public static double getMinRandomDouble(double min) {
+	public static double getMinRandomDouble(double min, final SplittableRandom random) {
 		double rand = 0;
 		while (Math.abs(rand) < min) {
-			rand = (2.0 * Math.random()) - 1.0;
+			rand = (2.0 * random.nextDouble()) - 1.0;
 		}
 		return rand;
 	}
 
+	/**
+	 * Create a ball placed using the given stream, the ball keeps a stream split
+	 * from it for any later teleports
+	 */
+	public static Ball createRandomBall(final double size, final Color color, final SplittableRandom random) {
+		return new Ball(size, random.nextDouble(), random.nextDouble(), fraction * getMinRandomDouble(0.15, random),
+				fraction * getMinRandomDouble(0.15, random), color, random.split());
+	}
+
 	public static Ball createRandomBall(final double size, final Color color) {
-		return new Ball(size, Math.random(), Math.random(), fraction * getMinRandomDouble(0.15),
-				fraction * getMinRandomDouble(0.15), color);
+		return createRandomBall(size, color, new SplittableRandom());
+	}
+
+	public static Ball createRandomRedBall(final double size, final SplittableRandom random) {
+		return createRandomBall(size, Color.RED, random);
 	}
 
 	public static Ball createRandomRedBall(final double size) {
 		return createRandomBall(size, Color.RED);
 	}
 
+	public static Ball createRandomGreenBall(final double size, final SplittableRandom random) {
+		return createRandomBall(size, Color.GREEN, random);
+	}
+
 	public static Ball createRandomGreenBall(final double size) {
 		return createRandomBall(size, Color.GREEN);
 	}
@@ -78,6 +104,16 @@ public class Ball {
 		return yVel;
 	}
 
+	public void setPosition(double xPos, double yPos) {
+		this.xPos = xPos;
+		this.yPos = yPos;
+	}
+
+	public void setVelocity(double xVel, double yVel) {
+		this.xVel = xVel;
+		this.yVel = yVel;
+	}
+
 	public Color getColor() {
 		return color;
 	}
@@ -87,33 +123,57 @@ public class Ball {
 	}
 
 	public void move(boolean wallsAreSolid) {
-		
-		// Update position
-		this.xPos += this.xVel;
-		this.yPos += this.yVel;
-
-		if (wallsAreSolid) {
-			// Bounce
-			if (this.xPos < 0 || this.xPos > 1)
-				this.xVel = -this.xVel;
-			if (this.yPos < 0 || this.yPos > 1)
-				this.yVel = -this.yVel;
-		} else {
-			// Jump to other side
-			if (this.xPos < 0)
-				this.xPos += 1;
-			if (this.yPos < 0)
-				this.yPos += 1;
-			if (this.xPos > 1)
-				this.xPos -= 1;
-			if (this.yPos > 1)
-				this.yPos -= 1;
-		}
+		this.xPos = step(this.xPos, this.xVel, wallsAreSolid);
+		this.yPos = step(this.yPos, this.yVel, wallsAreSolid);
+		this.xVel = bounce(this.xPos, this.xVel, wallsAreSolid);
+		this.yVel = bounce(this.yPos, this.yVel, wallsAreSolid);
+	}
+
+	/**
+	 * Position along one axis of a ball after a time step at the given velocity.
+	 * Every engine moves balls with this and {@link #bounce}, whatever it keeps
+	 * them in
+	 */
+	public static double step(double pos, double vel, boolean wallsAreSolid) {
+		pos += vel;
+		return wallsAreSolid ? pos : wrap(pos);
+	}
+
+	/**
+	 * Velocity along one axis of a ball that has stepped to the given position
+	 */
+	public static double bounce(double pos, double vel, boolean wallsAreSolid) {
+		return (wallsAreSolid && isOutside(pos)) ? -vel : vel;
+	}
+
+	/**
+	 * Whether a position along one axis is past either wall
+	 */
+	public static boolean isOutside(double pos) {
+		return pos < 0 || pos > 1;
+	}
+
+	/**
+	 * Jump a position along one axis that is past a wall to the other side
+	 */
+	public static double wrap(double pos) {
+		if (pos < 0)
+			pos += 1;
+		if (pos > 1)
+			pos -= 1;
+		return pos;
 	}
 
 	public Point getCenter() {
-		double radius = size / 2.0;
-		return new Point(this.xPos + radius, this.yPos + radius);
+		return new Point(getCenterX(), getCenterY());
+	}
+
+	public double getCenterX() {
+		return this.xPos + (size / 2.0);
+	}
+
+	public double getCenterY() {
+		return this.yPos + (size / 2.0);
 	}
 
 	public void feed() {
@@ -123,24 +183,29 @@ public class Ball {
 			this.ballEnergy = maxBallEnergy;
 
 			// Teleport to new position and direction
-			this.xPos = Math.random();
-			this.yPos = Math.random();
+			this.xPos = random.nextDouble();
+			this.yPos = random.nextDouble();
 
-			this.xVel = fraction * getMinRandomDouble(0.15);
-			this.yVel = fraction * getMinRandomDouble(0.15);
+			this.xVel = fraction * getMinRandomDouble(0.15, random);
+			this.yVel = fraction * getMinRandomDouble(0.15, random);
 		}
 
 	}
 
 	public static List<Ball> createBalls(final double size, int numGreenBalls, int numRedBalls) {
+		return createBalls(size, numGreenBalls, numRedBalls, new SplittableRandom());
+	}
+
+	public static List<Ball> createBalls(final double size, int numGreenBalls, int numRedBalls,
+			final SplittableRandom random) {
 		List<Ball> balls = new ArrayList<Ball>();
 
 		// Initialize balls
 		for (int i = 0; i < numGreenBalls; i++) {
-			balls.add(Ball.createRandomGreenBall(size));
+			balls.add(Ball.createRandomGreenBall(size, random));
 		}
 		for (int i = 0; i < numRedBalls; i++) {
-			balls.add(Ball.createRandomRedBall(size));
+			balls.add(Ball.createRandomRedBall(size, random));
 		}
 
 		return balls;
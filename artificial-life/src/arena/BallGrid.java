@@ -0,0 +1,201 @@
+package arena;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Uniform grid over the centers of the balls in the arena, so that bots only
+ * need to look at the balls near them rather than every ball each time step.
+ *
+ * The grid covers the unit arena. Centers outside of it (balls overshooting a
+ * solid wall before bouncing, or sight lines reaching past a wall) are clamped
+ * into the border cells, and with walls that are not solid positions are
+ * already folded back into the arena, so the same grid serves both modes.
+ *
+ * Queries return the same balls, in the same order, as checking every ball.
+ */
+public class BallGrid {
+
+	// Upper bound on cells along each side of the arena
+	private static final int MAX_CELLS = 64;
+
+	// Allowance for the tolerances used when intersecting lines with balls
+	private static final double ERR = 0.000001;
+
+	private int cells = 1;
+	private double cellSize = 1.0;
+	private double maxRadius = 0.0;
+
+	// Ball centers, indexed by position in the ball list
+	private double[] centerX = new double[0];
+	private double[] centerY = new double[0];
+	private int numBalls = 0;
+
+	// Ball indices sorted by cell, cellStart[c] to cellStart[c + 1] are in cell c
+	private int[] cellStart = new int[2];
+	private int[] cellBalls = new int[0];
+	private int[] cellFill = new int[1];
+
+	/**
+	 * Re-index the balls, must be called whenever balls move or are replaced
+	 */
+	public void rebuild(final List<Ball> balls) {
+		resize(balls.size());
+
+		// Count balls per cell
+		maxRadius = 0.0;
+		for (int i = 0; i < numBalls; i++) {
+			final Ball ball = balls.get(i);
+			double radius = ball.getSize() / 2.0;
+			centerX[i] = ball.getxPos() + radius;
+			centerY[i] = ball.getyPos() + radius;
+			maxRadius = Math.max(maxRadius, radius);
+			cellStart[cellOf(centerX[i], centerY[i]) + 1]++;
+		}
+
+		placeBalls();
+	}
+
+	/**
+	 * Re-index balls held as columns of positions (top left corner) and sizes
+	 */
+	public void rebuild(final double[] xPos, final double[] yPos, final double[] sizes, int numBalls) {
+		resize(numBalls);
+
+		// Count balls per cell
+		maxRadius = 0.0;
+		for (int i = 0; i < numBalls; i++) {
+			double radius = sizes[i] / 2.0;
+			centerX[i] = xPos[i] + radius;
+			centerY[i] = yPos[i] + radius;
+			maxRadius = Math.max(maxRadius, radius);
+			cellStart[cellOf(centerX[i], centerY[i]) + 1]++;
+		}
+
+		placeBalls();
+	}
+
+	private void resize(int numBalls) {
+		this.numBalls = numBalls;
+		this.cells = Math.max(1, Math.min(MAX_CELLS, (int) Math.ceil(Math.sqrt(numBalls))));
+		this.cellSize = 1.0 / cells;
+
+		if (centerX.length < numBalls) {
+			centerX = new double[numBalls];
+			centerY = new double[numBalls];
+			cellBalls = new int[numBalls];
+		}
+		if (cellStart.length < (cells * cells) + 1) {
+			cellStart = new int[(cells * cells) + 1];
+		} else {
+			Arrays.fill(cellStart, 0);
+		}
+	}
+
+	private void placeBalls() {
+		// Convert counts to starting offsets
+		for (int c = 0; c < cells * cells; c++) {
+			cellStart[c + 1] += cellStart[c];
+		}
+
+		// Place balls, in ascending ball order within each cell
+		if (cellFill.length < cells * cells) {
+			cellFill = new int[cells * cells];
+		}
+		System.arraycopy(cellStart, 0, cellFill, 0, cells * cells);
+		for (int i = 0; i < numBalls; i++) {
+			cellBalls[cellFill[cellOf(centerX[i], centerY[i])]++] = i;
+		}
+	}
+
+	private int column(double position) {
+		int column = (int) Math.floor(position * cells);
+		if (column < 0) {
+			return 0;
+		}
+		if (column >= cells) {
+			return cells - 1;
+		}
+		return column;
+	}
+
+	private int cellOf(double x, double y) {
+		return (column(y) * cells) + column(x);
+	}
+
+	/**
+	 * Find the ball whose center is closest to the given point and strictly less
+	 * than maxDistance away from it (ties go to the earliest ball).
+	 *
+	 * @return index of the ball, or -1 if no ball is in range
+	 */
+	public int findClosest(double x, double y, double maxDistance) {
+		final int col = column(x);
+		final int row = column(y);
+
+		int closest = -1;
+		double closestDistance = maxDistance;
+
+		// Search rings of cells outwards until nothing unvisited can be closer
+		for (int ring = 0; ring < cells; ring++) {
+			if (((ring - 1) * cellSize) >= closestDistance) {
+				break;
+			}
+			for (int r = row - ring; r <= row + ring; r++) {
+				if (r < 0 || r >= cells) {
+					continue;
+				}
+				boolean edgeRow = (r == row - ring) || (r == row + ring);
+				int step = edgeRow ? 1 : (2 * ring);
+				for (int c = col - ring; c <= col + ring; c += step) {
+					if (c < 0 || c >= cells) {
+						continue;
+					}
+					int cell = (r * cells) + c;
+					for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+						int ball = cellBalls[i];
+						double distance = Line.calculateDistance(x, y, centerX[ball], centerY[ball]);
+						if ((distance < closestDistance) || (distance == closestDistance && ball < closest)) {
+							closestDistance = distance;
+							closest = ball;
+						}
+					}
+				}
+			}
+		}
+
+		return closest;
+	}
+
+	/**
+	 * Collect every ball which might intersect the given line segment into the
+	 * provided array, in ascending ball order.
+	 *
+	 * @return number of candidate balls written
+	 */
+	public int findCandidates(double x1, double y1, double x2, double y2, final int[] candidates) {
+		double reach = maxRadius + ERR;
+		int minCol = column(Math.min(x1, x2) - reach);
+		int maxCol = column(Math.max(x1, x2) + reach);
+		int minRow = column(Math.min(y1, y2) - reach);
+		int maxRow = column(Math.max(y1, y2) + reach);
+
+		int count = 0;
+		for (int r = minRow; r <= maxRow; r++) {
+			for (int c = minCol; c <= maxCol; c++) {
+				int cell = (r * cells) + c;
+				for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+					candidates[count++] = cellBalls[i];
+				}
+			}
+		}
+
+		Arrays.sort(candidates, 0, count);
+		return count;
+	}
+
+	public int getNumBalls() {
+		return numBalls;
+	}
+
+}
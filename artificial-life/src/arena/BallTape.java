@@ -0,0 +1,120 @@
+package arena;
+
+import java.util.List;
+
+/**
+ * Positions and velocities of every ball for a run of time steps, worked out
+ * in advance. Balls move the same way whatever the bots do, since feeding never
+ * teleports a ball, so one tape recorded when the balls are reset serves every
+ * time step until the next reset, and every bot sees exactly the same balls.
+ *
+ * A tape never changes once recorded, so any number of threads may read it
+ * without locking.
+ */
+public final class BallTape {
+
+	// Layout of each ball within a frame
+	private static final int X = 0;
+	private static final int Y = 1;
+	private static final int X_VEL = 2;
+	private static final int Y_VEL = 3;
+	private static final int STRIDE = 4;
+
+	private final int numBalls;
+	private final int numFrames;
+	private final boolean wallsAreSolid;
+
+	// State of each ball after each time step, [frame][ball][X to Y_VEL]
+	private final double[] frames;
+
+	private BallTape(int numBalls, int numFrames, boolean wallsAreSolid) {
+		this.numBalls = numBalls;
+		this.numFrames = numFrames;
+		this.wallsAreSolid = wallsAreSolid;
+		this.frames = new double[numFrames * numBalls * STRIDE];
+	}
+
+	/**
+	 * Record the given number of time steps of the balls, starting from where
+	 * they are now
+	 */
+	public static BallTape record(final List<Ball> balls, int numFrames, boolean wallsAreSolid) {
+		final double[] start = new double[balls.size() * STRIDE];
+		for (int i = 0; i < balls.size(); i++) {
+			final Ball ball = balls.get(i);
+			start[i * STRIDE + X] = ball.xPos;
+			start[i * STRIDE + Y] = ball.yPos;
+			start[i * STRIDE + X_VEL] = ball.xVel;
+			start[i * STRIDE + Y_VEL] = ball.yVel;
+		}
+		return record(start, balls.size(), numFrames, wallsAreSolid);
+	}
+
+	/**
+	 * Record the time steps following the last frame of this tape
+	 */
+	public BallTape next(int numFrames) {
+		final double[] start = new double[numBalls * STRIDE];
+		System.arraycopy(frames, (this.numFrames - 1) * numBalls * STRIDE, start, 0, start.length);
+		return record(start, numBalls, numFrames, wallsAreSolid);
+	}
+
+	private static BallTape record(final double[] start, int numBalls, int numFrames, boolean wallsAreSolid) {
+		final BallTape tape = new BallTape(numBalls, Math.max(1, numFrames), wallsAreSolid);
+		final double[] frames = tape.frames;
+		final int frameSize = numBalls * STRIDE;
+		for (int frame = 0; frame < tape.numFrames; frame++) {
+			final double[] from = (frame == 0) ? start : frames;
+			final int fromOffset = (frame == 0) ? 0 : (frame - 1) * frameSize;
+			final int offset = frame * frameSize;
+			for (int i = 0; i < frameSize; i += STRIDE) {
+
+				final double xPos = Ball.step(from[fromOffset + i + X], from[fromOffset + i + X_VEL], wallsAreSolid);
+				final double yPos = Ball.step(from[fromOffset + i + Y], from[fromOffset + i + Y_VEL], wallsAreSolid);
+				final double xVel = Ball.bounce(xPos, from[fromOffset + i + X_VEL], wallsAreSolid);
+				final double yVel = Ball.bounce(yPos, from[fromOffset + i + Y_VEL], wallsAreSolid);
+				frames[offset + i + X] = xPos;
+				frames[offset + i + Y] = yPos;
+				frames[offset + i + X_VEL] = xVel;
+				frames[offset + i + Y_VEL] = yVel;
+			}
+		}
+		return tape;
+	}
+
+	/**
+	 * Move the given balls to where they are after the given time step
+	 */
+	public void apply(int frame, final List<Ball> balls) {
+		int offset = frame * numBalls * STRIDE;
+		for (int i = 0; i < numBalls; i++, offset += STRIDE) {
+			final Ball ball = balls.get(i);
+			ball.xPos = frames[offset + X];
+			ball.yPos = frames[offset + Y];
+			ball.xVel = frames[offset + X_VEL];
+			ball.yVel = frames[offset + Y_VEL];
+		}
+	}
+
+	/**
+	 * Same as above, for balls kept in primitive columns
+	 */
+	public void apply(int frame, final double[] xPos, final double[] yPos, final double[] xVel, final double[] yVel) {
+		int offset = frame * numBalls * STRIDE;
+		for (int i = 0; i < numBalls; i++, offset += STRIDE) {
+			xPos[i] = frames[offset + X];
+			yPos[i] = frames[offset + Y];
+			xVel[i] = frames[offset + X_VEL];
+			yVel[i] = frames[offset + Y_VEL];
+		}
+	}
+
+	public int getNumBalls() {
+		return numBalls;
+	}
+
+	public int getNumFrames() {
+		return numFrames;
+	}
+
+}
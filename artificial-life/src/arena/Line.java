@@ -7,6 +7,17 @@ public class Line {
 
 	private static final double ERR = 0.0000001;
 
+	// Layout of the arrays used by the primitive line of sight methods
+	public static final int X1 = 0;
+	public static final int Y1 = 1;
+	public static final int X2 = 2;
+	public static final int Y2 = 3;
+	public static final int LENGTH = 4;
+	public static final int ANGLE = 5;
+	public static final int DIRECTION_X = 6;
+	public static final int DIRECTION_Y = 7;
+	public static final int SIGHT_SIZE = 8;
+
 	private final Point p1;
 	private final Point p2;
 
@@ -23,29 +34,85 @@ public class Line {
 	}
 
 	public static Line fromBotSight(final Bot bot, final Configuration config) {
+		final double[] sight = new double[SIGHT_SIZE];
+		fromBotSight(bot.getxPos(), bot.getyPos(), bot.getSize(), bot.getHeadSize(), bot.getHeadingX(),
+				bot.getHeadingY(), bot.getOrientation(), bot.getScanAngle(config.getScanDegrees()),
+				bot.getScanDistance(config.getAntennaLength()), config.getTrig(), sight);
+		return new Line(new Point(sight[X1], sight[Y1]), new Point(sight[X2], sight[Y2]));
+	}
+
+	/**
+	 * Calculate a bot's line of sight, from the tip of its nose to the end of its
+	 * antenna, without creating any objects.
+	 *
+	 * @param sight array of at least SIGHT_SIZE, receives the end points, length
+	 *              and angle of the line at X1, Y1, X2, Y2, LENGTH and ANGLE, and
+	 *              its unit direction at DIRECTION_X and DIRECTION_Y
+	 */
+	public static void fromBotSight(double topShoulderX, double topShoulderY, double botWidth, double headSize,
+			double orientation, double scanAngleDegrees, double scanDistance, final double[] sight) {
+		final double bodyOrientationAngle = orientation - 90.0;
+		fromBotSight(topShoulderX, topShoulderY, botWidth, headSize, Trig.EXACT.cosDegrees(bodyOrientationAngle),
+				Trig.EXACT.sinDegrees(bodyOrientationAngle), orientation, scanAngleDegrees, scanDistance, Trig.EXACT,
+				sight);
+	}
 
-		double topShoulderX = bot.getxPos();
-		double topShoulderY = bot.getyPos();
-		double botWidth = bot.getSize();
+	/**
+	 * Same as above for a bot whose heading, the unit vector its body points
+	 * along, is already known. Costs two sines or cosines and one atan2.
+	 */
+	public static void fromBotSight(double topShoulderX, double topShoulderY, double botWidth, double headSize,
+			double headingX, double headingY, double orientation, double scanAngleDegrees, double scanDistance,
+			final Trig trig, final double[] sight) {
 
 		double botBodyCenterX = topShoulderX + (botWidth / 2.0);
 		double botBodyCenterY = topShoulderY + (botWidth / 2.0);
 
-		double lengthBotCenterToNose = (botWidth / 2.0) + bot.getHeadSize();
+		double lengthBotCenterToNose = (botWidth / 2.0) + headSize;
 
-		// Calculate point of nose end from body orientation
-		double bodyOrientationAngle = bot.getOrientation() - 90.0;
-		double noseX = botBodyCenterX + (Math.cos(Math.toRadians(bodyOrientationAngle)) * lengthBotCenterToNose);
-		double noseY = botBodyCenterY + (Math.sin(Math.toRadians(bodyOrientationAngle)) * lengthBotCenterToNose);
-		final Point nose = new Point(noseX, noseY);
+		// Calculate point of nose end from body heading
+		double noseX = botBodyCenterX + (headingX * lengthBotCenterToNose);
+		double noseY = botBodyCenterY + (headingY * lengthBotCenterToNose);
 
 		// Calculate end of scan line from nose, and scan angle and scan length
-		double scanAngle = bodyOrientationAngle + bot.getScanAngle(config.getScanDegrees());
-		double scanEndX = noseX + (Math.cos(Math.toRadians(scanAngle)) * bot.getScanDistance(config.getAntennaLength()));
-		double scanEndY = noseY + (Math.sin(Math.toRadians(scanAngle)) * bot.getScanDistance(config.getAntennaLength()));
-		final Point scanEnd = new Point(scanEndX, scanEndY);
+		double scanAngle = (orientation - 90.0) + scanAngleDegrees;
+		double directionX = trig.cosDegrees(scanAngle);
+		double directionY = trig.sinDegrees(scanAngle);
+		double scanEndX = noseX + (directionX * scanDistance);
+		double scanEndY = noseY + (directionY * scanDistance);
+
+		sight[X1] = noseX;
+		sight[Y1] = noseY;
+		sight[X2] = scanEndX;
+		sight[Y2] = scanEndY;
+		sight[LENGTH] = calculateDistance(noseX, noseY, scanEndX, scanEndY);
+		sight[ANGLE] = trig.atan2(scanEndY - noseY, scanEndX - noseX);
+		sight[DIRECTION_X] = directionX;
+		sight[DIRECTION_Y] = directionY;
+	}
 
-		return new Line(nose, scanEnd);
+	/**
+	 * Cosine of the angle from the direction a bot faces while scanning, a
+	 * quarter turn left of its line of sight, to the direction of the given
+	 * velocity
+	 */
+	public static double lateralComponent(double xVel, double yVel, final double[] sight) {
+		final double speed = Math.sqrt(xVel * xVel + yVel * yVel);
+		if (speed == 0) {
+			return -sight[DIRECTION_Y];
+		}
+		return ((sight[DIRECTION_X] * yVel) - (sight[DIRECTION_Y] * xVel)) / speed;
+	}
+
+	/**
+	 * Sine of the same angle as above
+	 */
+	public static double closingComponent(double xVel, double yVel, final double[] sight) {
+		final double speed = Math.sqrt(xVel * xVel + yVel * yVel);
+		if (speed == 0) {
+			return -sight[DIRECTION_X];
+		}
+		return -((sight[DIRECTION_X] * xVel) + (sight[DIRECTION_Y] * yVel)) / speed;
 	}
 
 	public Point getP1() {
@@ -81,15 +148,26 @@ public class Line {
 	}
 
 	public boolean doesIntersect(final Ball ball) {
-		final Point c = ball.getCenter();
-		double radius = ball.getSize() / 2.0;
+		return doesIntersect(getX1(), getY1(), getX2(), getY2(), this.length, ball.getCenterX(), ball.getCenterY(),
+				ball.getSize() / 2.0);
+	}
+
+	/**
+	 * Test whether a line of sight calculated by fromBotSight() crosses a ball
+	 */
+	public static boolean doesIntersect(final double[] sight, double centerX, double centerY, double radius) {
+		return doesIntersect(sight[X1], sight[Y1], sight[X2], sight[Y2], sight[LENGTH], centerX, centerY, radius);
+	}
+
+	public static boolean doesIntersect(double x1, double y1, double x2, double y2, double length, double centerX,
+			double centerY, double radius) {
 
 		// https://stackoverflow.com/questions/23016676/line-segment-and-circle-intersection
-		double dX = (getX2() - getX1());
-		double dY = (getY2() - getY1());
+		double dX = (x2 - x1);
+		double dY = (y2 - y1);
 
-		double xDiff = getX1() - c.getX();
-		double yDiff = getY1() - c.getY();
+		double xDiff = x1 - centerX;
+		double yDiff = y1 - centerY;
 
 		double A = (dX * dX) + (dY * dY);
 		double B = 2.0 * (dX * xDiff + dY * yDiff);
@@ -103,41 +181,49 @@ public class Line {
 		} else if (determinate == 0) {
 			// One solution, make sure it is a point on our line segment
 			double t = -B / (2 * A);
-			Point i = new Point(getX1() + t * dX, getY1() + t * dY);
-
-			return isPointOnMe(i);
+			return isPointOnLine(x1, y1, x2, y2, length, x1 + t * dX, y1 + t * dY);
 		} else // determinate > 0
 		{
 			// Two solutions, make sure one is a point on our line segment
 			double t1 = ((-B + Math.sqrt(determinate)) / (2.0 * A));
-			Point i1 = new Point(getX1() + t1 * dX, getY1() + t1 * dY);
-
 			double t2 = ((-B - Math.sqrt(determinate)) / (2.0 * A));
-			Point i2 = new Point(getX1() + t2 * dX, getY1() + t2 * dY);
-
-			return (isPointOnMe(i1) || isPointOnMe(i2));
+			return isPointOnLine(x1, y1, x2, y2, length, x1 + t1 * dX, y1 + t1 * dY)
+					|| isPointOnLine(x1, y1, x2, y2, length, x1 + t2 * dX, y1 + t2 * dY);
 		}
 	}
 
 	public boolean isPointOnMe(final Point p) {
+		return isPointOnLine(getX1(), getY1(), getX2(), getY2(), this.length, p.getX(), p.getY());
+	}
+
+	private static boolean isPointOnLine(double x1, double y1, double x2, double y2, double length, double x,
+			double y) {
 		// Calculate d1 = distance from P1 to p
-		double d1 = calculateDistance(p1, p);
+		double d1 = calculateDistance(x1, y1, x, y);
 
 		// Calculate d2 = distance from P2 to p
-		double d2 = calculateDistance(p2, p);
+		double d2 = calculateDistance(x2, y2, x, y);
 
 		// Check that (d1 + d2) ~= (length of this line)
 		double sum = d1 + d2;
-		return (sum - ERR < this.length) && (sum + ERR > this.length);
+		return (sum - ERR < length) && (sum + ERR > length);
 	}
 
 	public static double calculateDistance(final Point p1, final Point p2) {
-		return Math.sqrt(Math.pow(p2.getX() - p1.getX(), 2.0) + Math.pow(p2.getY() - p1.getY(), 2.0));
+		return calculateDistance(p1.getX(), p1.getY(), p2.getX(), p2.getY());
+	}
+
+	public static double calculateDistance(double x1, double y1, double x2, double y2) {
+		return Math.sqrt(Math.pow(x2 - x1, 2.0) + Math.pow(y2 - y1, 2.0));
 	}
 	
 	public double getAngleRadians() {
-		double deltaX = getX2() - getX1();
-		double deltaY = getY2() - getY1();
+		return getAngleRadians(getX1(), getY1(), getX2(), getY2());
+	}
+
+	public static double getAngleRadians(double x1, double y1, double x2, double y2) {
+		double deltaX = x2 - x1;
+		double deltaY = y2 - y1;
 		return Math.atan2(deltaY, deltaX);
 	}
 
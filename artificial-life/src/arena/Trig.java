@@ -0,0 +1,105 @@
+package arena;
+
+/**
+ * Trigonometry used to move bots and calculate what they sense
+ */
+public enum Trig {
+
+	// java.lang.Math, so seeded runs repeat exactly
+	EXACT {
+		@Override
+		public double sinDegrees(double degrees) {
+			return Math.sin(Math.toRadians(degrees));
+		}
+
+		@Override
+		public double cosDegrees(double degrees) {
+			return Math.cos(Math.toRadians(degrees));
+		}
+
+		@Override
+		public double atan2(double y, double x) {
+			return Math.atan2(y, x);
+		}
+	},
+
+	// Sines and cosines from an interpolated table, within 3e-7, and atan2 from a
+	// polynomial, within 1e-7 radians
+	FAST {
+		@Override
+		public double sinDegrees(double degrees) {
+			return tableSin(degrees * (TABLE_SIZE / 360.0));
+		}
+
+		@Override
+		public double cosDegrees(double degrees) {
+			return tableSin(degrees * (TABLE_SIZE / 360.0) + (TABLE_SIZE / 4));
+		}
+
+		@Override
+		public double atan2(double y, double x) {
+			return polynomialAtan2(y, x);
+		}
+	};
+
+	// Table entries per full turn, a power of two so angles wrap with a mask
+	private static final int TABLE_SIZE = 4096;
+
+	// Sine of each table entry, and the first again so every entry has a next one
+	private static final double[] SINES = new double[TABLE_SIZE + 1];
+
+	static {
+		for (int i = 0; i <= TABLE_SIZE; i++) {
+			SINES[i] = Math.sin((2.0 * Math.PI * i) / TABLE_SIZE);
+		}
+	}
+
+	// Abramowitz and Stegun 4.4.49, atan(x) for 0 <= x <= 1 within 2e-8
+	private static final double A2 = -0.3333314528;
+	private static final double A4 = 0.1999355085;
+	private static final double A6 = -0.1420889944;
+	private static final double A8 = 0.1065626393;
+	private static final double A10 = -0.0752896400;
+	private static final double A12 = 0.0429096138;
+	private static final double A14 = -0.0161657367;
+	private static final double A16 = 0.0028662257;
+
+	public abstract double sinDegrees(double degrees);
+
+	public abstract double cosDegrees(double degrees);
+
+	/**
+	 * Angle of the point (x, y) from the x axis, between -PI and PI
+	 */
+	public abstract double atan2(double y, double x);
+
+	private static double tableSin(double position) {
+		final double floor = Math.floor(position);
+		final int i = ((int) floor) & (TABLE_SIZE - 1);
+		final double fraction = position - floor;
+		return SINES[i] + fraction * (SINES[i + 1] - SINES[i]);
+	}
+
+	private static double polynomialAtan2(double y, double x) {
+		final double absX = Math.abs(x);
+		final double absY = Math.abs(y);
+		if (absX == 0 && absY == 0) {
+			return 0;
+		}
+
+		// Reduce to the first octant, then unfold
+		final boolean steep = absY > absX;
+		final double t = steep ? (absX / absY) : (absY / absX);
+		final double t2 = t * t;
+		double angle = t * (1 + t2 * (A2 + t2 * (A4 + t2 * (A6 + t2 * (A8 + t2 * (A10 + t2 * (A12
+				+ t2 * (A14 + t2 * A16))))))));
+		if (steep) {
+			angle = (Math.PI / 2) - angle;
+		}
+		if (x < 0) {
+			angle = Math.PI - angle;
+		}
+		return (y < 0) ? -angle : angle;
+	}
+
+}
@@ -0,0 +1,72 @@
+package brain;
+
+import java.util.SplittableRandom;
+
+/**
+ * Measures how far the FAST activations stray from EXACT, and times both on
+ * the outputs of a population of bot brains, laid out as PopulationNetwork
+ * writes them: three tanh outputs then one sigmoid output per bot.
+ *
+ * Usage: java -cp bin brain.ActivationBenchmark
+ */
+public class ActivationBenchmark {
+
+	private static final int NUM_OUTPUTS = 4;
+	private static final int NUM_BRAINS = 10000;
+	private static final int WARMUP_ROUNDS = 500;
+	private static final int TIMED_ROUNDS = 500;
+
+	// Keeps the JIT from dropping work whose results are never used
+	private static double sink = 0.0;
+
+	public static void main(String args[]) {
+		double tanhError = 0.0;
+		double sigmoidError = 0.0;
+		for (double input = -50.0; input <= 50.0; input += 1e-5) {
+			tanhError = Math.max(tanhError, Math.abs(Activation.FAST.tanh(input) - Activation.EXACT.tanh(input)));
+			sigmoidError = Math.max(sigmoidError,
+					Math.abs(Activation.FAST.sigmoid(input) - Activation.EXACT.sigmoid(input)));
+		}
+		System.out.println(String.format("Largest difference from EXACT: tanh %.2e, sigmoid %.2e", tanhError,
+				sigmoidError));
+
+		// Brain outputs mostly fall within a few units of 0
+		final SplittableRandom random = new SplittableRandom(42);
+		final double[] outputs = new double[NUM_BRAINS * NUM_OUTPUTS];
+		for (int i = 0; i < outputs.length; i++) {
+			outputs[i] = random.nextDouble() * 8.0 - 4.0;
+		}
+		final double[] activated = new double[outputs.length];
+
+		System.out.println(String.format("%-8s %12s", "mode", "ns per bot"));
+		for (final Activation activation : Activation.values()) {
+			System.out.println(String.format("%-8s %12.1f", activation, time(activation, outputs, activated)));
+		}
+		if (sink == 42.0) {
+			System.out.println();
+		}
+	}
+
+	// Nanoseconds per bot to squash all of its outputs
+	private static double time(final Activation activation, final double[] outputs, final double[] activated) {
+		for (int round = 0; round < WARMUP_ROUNDS; round++) {
+			activate(activation, outputs, activated);
+		}
+		final long start = System.nanoTime();
+		for (int round = 0; round < TIMED_ROUNDS; round++) {
+			activate(activation, outputs, activated);
+		}
+		return (System.nanoTime() - start) / (double) (TIMED_ROUNDS * NUM_BRAINS);
+	}
+
+	private static void activate(final Activation activation, final double[] outputs, final double[] activated) {
+		for (int offset = 0; offset < outputs.length; offset += NUM_OUTPUTS) {
+			activated[offset] = activation.tanh(outputs[offset]);
+			activated[offset + 1] = activation.tanh(outputs[offset + 1]);
+			activated[offset + 2] = activation.tanh(outputs[offset + 2]);
+			activated[offset + 3] = activation.sigmoid(outputs[offset + 3]);
+		}
+		sink += activated[outputs.length - 1];
+	}
+
+}
@@ -1,13 +1,18 @@
 package brain;
 
 import java.util.Arrays;
+import java.util.SplittableRandom;
 
 public class BotBrain {
 
 	final NeuralNetwork neuralNet;
 
 	public BotBrain(int brainSize) {
-		this(22, brainSize, 4);
+		this(brainSize, InferenceVersion.FULL, Precision.DOUBLE);
+	}
+
+	public BotBrain(int brainSize, final InferenceVersion inferenceVersion, final Precision precision) {
+		this(22, brainSize, 4, inferenceVersion, precision);
 	}
 	
 	public BotBrain(final NeuralNetwork neuralNet) {
@@ -16,39 +21,49 @@ public class BotBrain {
 	}
 
 	public BotBrain(int inputLayerSize, int hiddenLayerSize, int outputLayerSize) {
+		this(inputLayerSize, hiddenLayerSize, outputLayerSize, InferenceVersion.FULL, Precision.DOUBLE);
+	}
 
-		// Inputs to Hidden Layer Weights
-		double[][] inputsToHidden = new double[hiddenLayerSize][inputLayerSize];
-
-		// Hidden to Outputs Layer Weights
-		double[][] hiddenToOutputs = new double[outputLayerSize][hiddenLayerSize];
+	public BotBrain(int inputLayerSize, int hiddenLayerSize, int outputLayerSize,
+			final InferenceVersion inferenceVersion, final Precision precision) {
 
-		// Create bias arrays
-		double[][] hiddenBiases = new double[hiddenLayerSize][1];
-		double[][] outputBiases = new double[outputLayerSize][1];
+		// Inputs to hidden layer weights, then hidden to outputs layer weights
+		final int[] layerSizes = new int[] { inputLayerSize, hiddenLayerSize, outputLayerSize };
+		this.neuralNet = NeuralNetwork.create(layerSizes, precision, inferenceVersion);
+	}
 
-		double[][] layers[] = new double[][][] { inputsToHidden, hiddenToOutputs };
-		double[][] biases[] = new double[][][] { hiddenBiases, outputBiases };
-		this.neuralNet = new NeuralNetwork(layers, biases);
+	/**
+	 * Same shape as above, around a genome from the given pool that holds
+	 * leftover genes until randomized
+	 */
+	public BotBrain(int brainSize, final InferenceVersion inferenceVersion, final Precision precision,
+			final GenomePool pool) {
+		this.neuralNet = pool.create(new int[] { 22, brainSize, 4 }, precision, inferenceVersion);
 	}
 
 	public void randomize() {
-		this.neuralNet.randomize(this.neuralNet.layers);
-		this.neuralNet.randomize(this.neuralNet.biases);
+		randomize(new SplittableRandom());
+	}
+
+	public void randomize(final SplittableRandom random) {
+		this.neuralNet.randomize(random);
 	}
 
 	public double[] processInputs(double[] inputs) {
 		return this.neuralNet.propagate(inputs);
 	}
 
+	// Same as above, writing to outputs and using scratch for the hidden layers
+	public void processInputs(double[] inputs, double[] outputs, double[] scratch) {
+		this.neuralNet.propagate(inputs, outputs, scratch);
+	}
+
 	public static void main(String args[]) {
 		BotBrain brain1 = new BotBrain(16);
-		brain1.neuralNet.randomize(brain1.neuralNet.layers);
-		brain1.neuralNet.randomize(brain1.neuralNet.biases);
+		brain1.neuralNet.randomize();
 
 		BotBrain brain2 = new BotBrain(16);
-		brain2.neuralNet.randomize(brain2.neuralNet.layers);
-		brain2.neuralNet.randomize(brain2.neuralNet.biases);
+		brain2.neuralNet.randomize();
 
 		double[] inputs = new double[] { 0.3, 0.1, -0.8 };
 
@@ -62,32 +77,32 @@ public class BotBrain {
 		System.out.println(Arrays.toString(results2));
 
 		System.out.println("Parent1:");
-		System.out.println(Arrays.deepToString(brain1.neuralNet.layers));
-		System.out.println(Arrays.deepToString(brain1.neuralNet.biases));
+		System.out.println(Arrays.deepToString(brain1.neuralNet.getLayers()));
+		System.out.println(Arrays.deepToString(brain1.neuralNet.getBiases()));
 
 		System.out.println("Parent2:");
-		System.out.println(Arrays.deepToString(brain2.neuralNet.layers));
-		System.out.println(Arrays.deepToString(brain2.neuralNet.biases));
+		System.out.println(Arrays.deepToString(brain2.neuralNet.getLayers()));
+		System.out.println(Arrays.deepToString(brain2.neuralNet.getBiases()));
 
 		System.out.println("Clone:");
 		NeuralNetwork clone = Reproduce.clone(brain2.neuralNet);
-		System.out.println(Arrays.deepToString(clone.layers));
-		System.out.println(Arrays.deepToString(clone.biases));
+		System.out.println(Arrays.deepToString(clone.getLayers()));
+		System.out.println(Arrays.deepToString(clone.getBiases()));
 
 		System.out.println("Mutant:");
 		NeuralNetwork mutant = Reproduce.mutate(brain2.neuralNet, 0.25);
-		System.out.println(Arrays.deepToString(mutant.layers));
-		System.out.println(Arrays.deepToString(mutant.biases));
+		System.out.println(Arrays.deepToString(mutant.getLayers()));
+		System.out.println(Arrays.deepToString(mutant.getBiases()));
 
 		System.out.println("Average:");
 		NeuralNetwork average = Reproduce.average(brain1.neuralNet, brain2.neuralNet);
-		System.out.println(Arrays.deepToString(average.layers));
-		System.out.println(Arrays.deepToString(average.biases));
+		System.out.println(Arrays.deepToString(average.getLayers()));
+		System.out.println(Arrays.deepToString(average.getBiases()));
 
 		System.out.println("Sample:");
 		NeuralNetwork sample = Reproduce.sample(brain1.neuralNet, brain2.neuralNet, 0.5);
-		System.out.println(Arrays.deepToString(sample.layers));
-		System.out.println(Arrays.deepToString(sample.biases));
+		System.out.println(Arrays.deepToString(sample.getLayers()));
+		System.out.println(Arrays.deepToString(sample.getBiases()));
 
 	}
 
@@ -0,0 +1,91 @@
+package brain;
+
+import java.util.ArrayList;
+
+/**
+ * Genomes of networks nobody uses any more, kept for breeding new networks
+ * without allocating. Reproduce fills a genome taken from the pool when given
+ * one, and only allocates when the pool has none of the right length.
+ *
+ * Only give back a network that nothing else holds: its genes are overwritten
+ * by the next kid bred from the pool. Safe to share between threads.
+ */
+public class GenomePool {
+
+	// Enough for a few generations of a large population
+	private static final int MAX_GENOMES = 4096;
+
+	private final ArrayList<double[]> genomes = new ArrayList<>();
+	private final ArrayList<float[]> floatGenomes = new ArrayList<>();
+
+	/**
+	 * Keep the genome of a network that is no longer used
+	 */
+	public synchronized void release(final NeuralNetwork network) {
+		if (network.floatGenome != null) {
+			if (floatGenomes.size() < MAX_GENOMES) {
+				floatGenomes.add(network.floatGenome);
+			}
+		} else if (genomes.size() < MAX_GENOMES) {
+			genomes.add(network.genome);
+		}
+	}
+
+	/**
+	 * Genome of the given length with leftover genes, newly allocated if the pool
+	 * has none
+	 */
+	synchronized double[] takeDoubles(int length) {
+		for (int i = genomes.size() - 1; i >= 0; i--) {
+			if (genomes.get(i).length == length) {
+				return removeDoubles(i);
+			}
+		}
+		return new double[length];
+	}
+
+	synchronized float[] takeFloats(int length) {
+		for (int i = floatGenomes.size() - 1; i >= 0; i--) {
+			if (floatGenomes.get(i).length == length) {
+				return removeFloats(i);
+			}
+		}
+		return new float[length];
+	}
+
+	// Remove by moving the last genome into the gap, so nothing shifts
+	private double[] removeDoubles(int i) {
+		final double[] genome = genomes.get(i);
+		genomes.set(i, genomes.get(genomes.size() - 1));
+		genomes.remove(genomes.size() - 1);
+		return genome;
+	}
+
+	private float[] removeFloats(int i) {
+		final float[] genome = floatGenomes.get(i);
+		floatGenomes.set(i, floatGenomes.get(floatGenomes.size() - 1));
+		floatGenomes.remove(floatGenomes.size() - 1);
+		return genome;
+	}
+
+	/**
+	 * Network of the given shape around a pooled genome, holding leftover genes
+	 * until it is randomized
+	 */
+	public NeuralNetwork create(final int[] layerSizes, final Precision precision,
+			final InferenceVersion inferenceVersion) {
+		final int length = NeuralNetwork.genomeLength(layerSizes);
+		if (precision == Precision.FLOAT) {
+			return new NeuralNetwork(layerSizes, takeFloats(length), inferenceVersion);
+		}
+		return new NeuralNetwork(layerSizes, takeDoubles(length), inferenceVersion);
+	}
+
+	/**
+	 * Number of genomes waiting to be reused
+	 */
+	public synchronized int size() {
+		return genomes.size() + floatGenomes.size();
+	}
+
+}
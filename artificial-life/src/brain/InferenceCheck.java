@@ -0,0 +1,186 @@
+package brain;
+
+import java.util.SplittableRandom;
+
+/**
+ * Checks the fast inference kernels against a straightforward reference
+ * implementation, for both inference versions and precisions, a range of brain
+ * sizes and deeper networks. Exits with status 1 if any output differs.
+ *
+ * Usage: java -cp bin brain.InferenceCheck
+ */
+public class InferenceCheck {
+
+	// Largest difference allowed between a kernel and the reference, relative to
+	// outputs larger than 1. Float networks add up floats where the reference
+	// adds up doubles.
+	private static final double TOLERANCE = 1e-12;
+	private static final double FLOAT_TOLERANCE = 1e-5;
+
+	private static final int NUM_NETWORKS = 100;
+	private static final int NUM_INPUT_SETS = 20;
+
+	private int failures = 0;
+	private int checks = 0;
+
+	public static void main(String args[]) {
+		final InferenceCheck check = new InferenceCheck();
+		final SplittableRandom random = new SplittableRandom(1234);
+
+		for (final Precision precision : Precision.values()) {
+			for (final InferenceVersion version : InferenceVersion.values()) {
+				for (final int hidden : new int[] { 1, 2, 16, 64, 256 }) {
+					check.checkShape(new int[] { 22, hidden, 4 }, version, precision, random);
+				}
+				check.checkShape(new int[] { 22, 16, 8, 4 }, version, precision, random);
+				check.checkShape(new int[] { 5, 3 }, version, precision, random);
+			}
+		}
+		check.checkMatrixPath(random);
+
+		System.out.println(check.checks + " checks, " + check.failures + " failures");
+		if (check.failures > 0) {
+			System.exit(1);
+		}
+	}
+
+	private void checkShape(final int[] sizes, final InferenceVersion version, final Precision precision,
+			final SplittableRandom random) {
+		final BotBrain[] brains = new BotBrain[NUM_NETWORKS];
+		for (int n = 0; n < NUM_NETWORKS; n++) {
+			brains[n] = new BotBrain(randomNetwork(sizes, version, precision, random));
+		}
+		final double tolerance = (precision == Precision.FLOAT) ? FLOAT_TOLERANCE : TOLERANCE;
+		final String description = describe(sizes, version, precision);
+
+		final int numInputs = sizes[0];
+		final int numOutputs = sizes[sizes.length - 1];
+		final PopulationNetwork population = new PopulationNetwork();
+		check(population.load(brains, NUM_NETWORKS), "population loads " + description);
+
+		final double[] inputs = new double[NUM_NETWORKS * numInputs];
+		final double[] batchOutputs = new double[NUM_NETWORKS * numOutputs];
+		final double[] parallelOutputs = new double[NUM_NETWORKS * numOutputs];
+		final double[] outputs = new double[numOutputs];
+		final double[] botInputs = new double[numInputs];
+
+		for (int set = 0; set < NUM_INPUT_SETS; set++) {
+			for (int i = 0; i < inputs.length; i++) {
+				inputs[i] = random.nextDouble() * 2.0 - 1.0;
+			}
+			population.propagate(inputs, batchOutputs, false);
+			population.propagate(inputs, parallelOutputs, true);
+
+			for (int n = 0; n < NUM_NETWORKS; n++) {
+				final NeuralNetwork network = brains[n].getNeuralNet();
+				System.arraycopy(inputs, n * numInputs, botInputs, 0, numInputs);
+				final double[] expected = reference(network, botInputs);
+
+				network.propagate(botInputs, outputs, new double[network.getScratchSize()]);
+				compare(expected, outputs, 0, tolerance, "propagate " + description);
+				compare(expected, network.propagate(botInputs), 0, tolerance, "allocating propagate " + description);
+				compare(expected, batchOutputs, n * numOutputs, tolerance, "population " + description);
+				compare(expected, parallelOutputs, n * numOutputs, tolerance, "parallel population " + description);
+			}
+		}
+	}
+
+	/**
+	 * The reference itself against the matrix helpers, which compute full
+	 * inference one layer at a time on jagged arrays
+	 */
+	private void checkMatrixPath(final SplittableRandom random) {
+		final int[] sizes = { 22, 16, 4 };
+		for (int n = 0; n < NUM_NETWORKS; n++) {
+			final NeuralNetwork network = randomNetwork(sizes, InferenceVersion.FULL, Precision.DOUBLE, random);
+			final double[][][] layers = network.getLayers();
+			final double[][][] biases = network.getBiases();
+
+			final double[][] column = new double[sizes[0]][1];
+			final double[] inputs = new double[sizes[0]];
+			for (int i = 0; i < inputs.length; i++) {
+				inputs[i] = random.nextDouble() * 2.0 - 1.0;
+				column[i][0] = inputs[i];
+			}
+
+			double[][] result = column;
+			for (int l = 0; l < layers.length; l++) {
+				result = NeuralNetwork.matrixAdd(NeuralNetwork.matrixMultiply(layers[l], result), biases[l]);
+				if (l < layers.length - 1) {
+					NeuralNetwork.normalizeMatrix(result);
+				}
+			}
+
+			final double[] outputs = new double[result.length];
+			for (int i = 0; i < result.length; i++) {
+				outputs[i] = result[i][0];
+			}
+			compare(reference(network, inputs), outputs, 0, TOLERANCE, "matrix helpers");
+		}
+	}
+
+	/**
+	 * Outputs computed directly from the jagged weights, one neuron at a time
+	 */
+	static double[] reference(final NeuralNetwork network, final double[] inputs) {
+		final double[][][] layers = network.getLayers();
+		final double[][][] biases = network.getBiases();
+		final boolean legacy = network.getInferenceVersion() == InferenceVersion.LEGACY;
+
+		double[] values = inputs;
+		for (int l = 0; l < layers.length; l++) {
+			final double[] next = new double[layers[l].length];
+			for (int i = 0; i < next.length; i++) {
+				double sum = 0.0;
+				for (int k = 0; k < values.length; k++) {
+					// Legacy networks only see the first neuron of the layer before
+					if (legacy && k > 0) {
+						break;
+					}
+					sum += layers[l][i][k] * values[k];
+				}
+				sum += biases[l][i][0];
+				next[i] = (l < layers.length - 1) ? Math.max(0.0, sum) : sum;
+			}
+			values = next;
+		}
+		return values;
+	}
+
+	private static NeuralNetwork randomNetwork(final int[] sizes, final InferenceVersion version,
+			final Precision precision, final SplittableRandom random) {
+		final NeuralNetwork network = NeuralNetwork.create(sizes, precision, version);
+		network.randomize(random);
+		return network;
+	}
+
+	private void compare(final double[] expected, final double[] actual, int offset, double tolerance,
+			final String what) {
+		for (int i = 0; i < expected.length; i++) {
+			final double difference = Math.abs(expected[i] - actual[offset + i]);
+			if (!(difference <= tolerance * Math.max(1.0, Math.abs(expected[i])))) {
+				check(false, what + " output " + i + ": expected " + expected[i] + " but was " + actual[offset + i]);
+				return;
+			}
+		}
+		check(true, what);
+	}
+
+	private void check(boolean passed, final String what) {
+		checks++;
+		if (!passed) {
+			failures++;
+			System.out.println("FAILED: " + what);
+		}
+	}
+
+	private static String describe(final int[] sizes, final InferenceVersion version, final Precision precision) {
+		final StringBuilder description = new StringBuilder(precision.toString()).append(' ').append(version)
+				.append(' ');
+		for (int l = 0; l < sizes.length; l++) {
+			description.append(l == 0 ? "" : "-").append(sizes[l]);
+		}
+		return description.toString();
+	}
+
+}
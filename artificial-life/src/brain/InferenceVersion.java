@@ -0,0 +1,16 @@
+package brain;
+
+/**
+ * How a NeuralNetwork turns its inputs into outputs
+ */
+public enum InferenceVersion {
+
+	// As networks ran before every input was used, each neuron only sees the
+	// first neuron of the layer before it. Brains evolved under this version
+	// keep it so they behave as they did when saved.
+	LEGACY,
+
+	// Each neuron sees every neuron of the layer before it
+	FULL
+
+}
@@ -0,0 +1,156 @@
+package brain;
+
+import java.util.SplittableRandom;
+
+/**
+ * Times the scalar kernels against the Vector API kernels on the work of a
+ * population of bot brains (22 inputs, 4 outputs) for hidden layers of 16 to
+ * 256 neurons: inference through both layers, and breeding by averaging and
+ * by sampling genes from two parents.
+ *
+ * Usage: java --add-modules jdk.incubator.vector -cp bin brain.KernelBenchmark
+ */
+public class KernelBenchmark {
+
+	private static final int NUM_INPUTS = 22;
+	private static final int NUM_OUTPUTS = 4;
+	private static final int NUM_BRAINS = 1000;
+	private static final int WARMUP_ROUNDS = 500;
+	private static final int TIMED_ROUNDS = 500;
+
+	// Keeps the JIT from dropping work whose results are never used
+	private static double sink = 0.0;
+
+	public static void main(String args[]) {
+		final Kernels scalar = new ScalarKernels();
+		final Kernels vector = Kernels.ACTIVE.isVectorized() ? Kernels.ACTIVE : null;
+		if (vector == null) {
+			System.out.println("Vector API not available, start java with --add-modules jdk.incubator.vector");
+		} else {
+			System.out.println("Using " + vector.getName());
+		}
+
+		System.out.println(String.format("%-8s %-10s %12s %12s %8s", "hidden", "work", "scalar ns", "vector ns",
+				"speedup"));
+		for (final int hidden : new int[] { 16, 32, 64, 128, 256 }) {
+			final Workload workload = new Workload(hidden, new SplittableRandom(hidden));
+			for (final String work : new String[] { "double", "float", "average", "sample" }) {
+				final double scalarNanos = time(scalar, workload, work);
+				if (vector == null) {
+					System.out.println(String.format("%-8d %-10s %12.0f", hidden, work, scalarNanos));
+				} else {
+					final double vectorNanos = time(vector, workload, work);
+					System.out.println(String.format("%-8d %-10s %12.0f %12.0f %7.2fx", hidden, work, scalarNanos,
+							vectorNanos, scalarNanos / vectorNanos));
+				}
+			}
+		}
+		if (sink == 42.0) {
+			System.out.println();
+		}
+	}
+
+	// Nanoseconds per brain for one round of the given work
+	private static double time(final Kernels kernels, final Workload workload, final String work) {
+		for (int round = 0; round < WARMUP_ROUNDS; round++) {
+			workload.run(kernels, work);
+		}
+		final long start = System.nanoTime();
+		for (int round = 0; round < TIMED_ROUNDS; round++) {
+			workload.run(kernels, work);
+		}
+		return (System.nanoTime() - start) / (double) (TIMED_ROUNDS * NUM_BRAINS);
+	}
+
+	/**
+	 * Weights of a population laid out as PopulationNetwork stacks them
+	 */
+	private static class Workload {
+		final int hidden;
+		final double[] hiddenWeights;
+		final double[] outputWeights;
+		final float[] floatHiddenWeights;
+		final float[] floatOutputWeights;
+		final double[] inputs;
+		final float[] floatInputs;
+		final double[] activations;
+		final float[] floatActivations;
+		final double[] genome1;
+		final double[] genome2;
+		final double[] kid;
+		final boolean[] takeFirst;
+
+		Workload(int hidden, final SplittableRandom random) {
+			this.hidden = hidden;
+			this.hiddenWeights = randomDoubles(NUM_BRAINS * hidden * NUM_INPUTS, random);
+			this.outputWeights = randomDoubles(NUM_BRAINS * NUM_OUTPUTS * hidden, random);
+			this.floatHiddenWeights = toFloats(hiddenWeights);
+			this.floatOutputWeights = toFloats(outputWeights);
+			this.inputs = randomDoubles(NUM_BRAINS * NUM_INPUTS, random);
+			this.floatInputs = toFloats(inputs);
+			this.activations = new double[hidden];
+			this.floatActivations = new float[hidden];
+
+			final int genomeLength = (NUM_INPUTS + 1) * hidden + (hidden + 1) * NUM_OUTPUTS;
+			this.genome1 = randomDoubles(genomeLength, random);
+			this.genome2 = randomDoubles(genomeLength, random);
+			this.kid = new double[genomeLength];
+			this.takeFirst = new boolean[genomeLength];
+			for (int i = 0; i < genomeLength; i++) {
+				takeFirst[i] = random.nextBoolean();
+			}
+		}
+
+		void run(final Kernels kernels, final String work) {
+			for (int n = 0; n < NUM_BRAINS; n++) {
+				switch (work) {
+				case "double":
+					for (int h = 0; h < hidden; h++) {
+						activations[h] = kernels.dot(hiddenWeights, ((n * hidden) + h) * NUM_INPUTS, inputs,
+								n * NUM_INPUTS, NUM_INPUTS);
+					}
+					kernels.rectify(activations, 0, hidden);
+					for (int o = 0; o < NUM_OUTPUTS; o++) {
+						sink += kernels.dot(outputWeights, ((n * NUM_OUTPUTS) + o) * hidden, activations, 0, hidden);
+					}
+					break;
+				case "float":
+					for (int h = 0; h < hidden; h++) {
+						floatActivations[h] = Math.max(0.0f, kernels.dot(floatHiddenWeights,
+								((n * hidden) + h) * NUM_INPUTS, floatInputs, n * NUM_INPUTS, NUM_INPUTS));
+					}
+					for (int o = 0; o < NUM_OUTPUTS; o++) {
+						sink += kernels.dot(floatOutputWeights, ((n * NUM_OUTPUTS) + o) * hidden, floatActivations, 0,
+								hidden);
+					}
+					break;
+				case "average":
+					kernels.average(genome1, genome2, kid);
+					sink += kid[n % kid.length];
+					break;
+				default:
+					kernels.select(genome1, genome2, takeFirst, kid);
+					sink += kid[n % kid.length];
+					break;
+				}
+			}
+		}
+
+		private static double[] randomDoubles(int length, final SplittableRandom random) {
+			final double[] values = new double[length];
+			for (int i = 0; i < length; i++) {
+				values[i] = random.nextDouble() * 2.0 - 1.0;
+			}
+			return values;
+		}
+
+		private static float[] toFloats(final double[] values) {
+			final float[] floats = new float[values.length];
+			for (int i = 0; i < values.length; i++) {
+				floats[i] = (float) values[i];
+			}
+			return floats;
+		}
+	}
+
+}
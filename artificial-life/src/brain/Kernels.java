@@ -0,0 +1,50 @@
+package brain;
+
+/**
+ * The inner loops of inference and breeding. NeuralNetwork, PopulationNetwork
+ * and Reproduce run them through Kernels.ACTIVE, which uses the Vector API
+ * when the jdk.incubator.vector module is available and plain loops otherwise.
+ *
+ * Start java with "--add-modules jdk.incubator.vector" to use the Vector API,
+ * and with "-Dbots.kernels=scalar" to use plain loops even then.
+ */
+interface Kernels {
+
+	Kernels ACTIVE = load();
+
+	// Sum of weights times inputs for the given stretch of each
+	double dot(double[] weights, int weightOffset, double[] inputs, int inputOffset, int length);
+
+	float dot(float[] weights, int weightOffset, float[] inputs, int inputOffset, int length);
+
+	// Replace negative values with 0
+	void rectify(double[] values, int offset, int length);
+
+	// Average of each pair of genes
+	void average(double[] genome1, double[] genome2, double[] result);
+
+	void average(float[] genome1, float[] genome2, float[] result);
+
+	// Gene of genome1 where takeFirst is set, else gene of genome2
+	void select(double[] genome1, double[] genome2, boolean[] takeFirst, double[] result);
+
+	void select(float[] genome1, float[] genome2, boolean[] takeFirst, float[] result);
+
+	// Whether results may be added up in a different order than plain loops
+	boolean isVectorized();
+
+	String getName();
+
+	static Kernels load() {
+		if ("scalar".equalsIgnoreCase(System.getProperty("bots.kernels"))) {
+			return new ScalarKernels();
+		}
+		try {
+			return (Kernels) Class.forName("brain.VectorKernels").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			// Not compiled, or the module wasn't added when starting java
+			return new ScalarKernels();
+		}
+	}
+
+}
@@ -1,22 +1,42 @@
 package brain;
 
 import java.util.Arrays;
+import java.util.SplittableRandom;
 
 public class NeuralNetwork {
 
-	// Each layer is a 2d array of weights
-	// Each layer represents synapse strength between every pair of neurons between
-	// each layer
-	protected final double[][] layers[];
+	// Number of neurons at each level, inputs first and outputs last
+	// Example: { 22, 16, 4 } has two layers
+	// layer 0 (input to hidden layer weights)
+	// layer 1 (hidden to output layer weights)
+	protected final int[] layerSizes;
 
-	// Each neuron at each layer has its own bias
-	protected final double[][] biases[];
+	// Every weight and bias in one contiguous genome. The weights of each layer
+	// come first, as [neuron][input], followed by the biases of each layer, one
+	// per neuron. Walking the genome in order visits genes in the same order as
+	// walking the layers and then the biases.
+	// Only one of the genomes is set, depending on the precision of the network.
+	protected final double[] genome;
+	protected final float[] floatGenome;
 
-	// Example 1:
-	// layer[0] (input to hidden layer weights)
-	// layer[1] (hidden to output layer weights)
+	// Where each layer's weights and biases start in the genome
+	protected final int[] weightOffsets;
+	protected final int[] biasOffsets;
+
+	// Size of the largest hidden layer
+	private final int maxHiddenSize;
+
+	// Which inputs each neuron sees, kept by children of this network
+	protected final InferenceVersion inferenceVersion;
+
+	// Inputs of a float layer, converted once rather than for every neuron
+	private static final ThreadLocal<float[][]> FLOAT_SCRATCH = ThreadLocal.withInitial(() -> new float[][] { {} });
 
 	public NeuralNetwork(final double[][] layers[], double[][] biases[]) {
+		this(layers, biases, InferenceVersion.FULL);
+	}
+
+	public NeuralNetwork(final double[][] layers[], double[][] biases[], final InferenceVersion inferenceVersion) {
 		// Check that number of rows of layer n equals number of columns in layer n+1
 		for (int i = 0; i < layers.length - 1; i++) {
 			double[][] thisLayer = layers[i];
@@ -27,58 +47,332 @@ public class NeuralNetwork {
 			}
 		}
 
-		this.layers = layers;
-		this.biases = biases;
+		this.layerSizes = new int[layers.length + 1];
+		this.layerSizes[0] = layers[0][0].length;
+		for (int l = 0; l < layers.length; l++) {
+			this.layerSizes[l + 1] = layers[l].length;
+		}
+		this.weightOffsets = new int[layers.length];
+		this.biasOffsets = new int[layers.length];
+		this.genome = new double[computeOffsets(layerSizes, weightOffsets, biasOffsets)];
+		this.floatGenome = null;
+		this.maxHiddenSize = computeMaxHiddenSize(layerSizes);
+		this.inferenceVersion = inferenceVersion;
+
+		for (int l = 0; l < layers.length; l++) {
+			final int inputs = layerSizes[l];
+			for (int i = 0; i < layerSizes[l + 1]; i++) {
+				System.arraycopy(layers[l][i], 0, genome, weightOffsets[l] + (i * inputs), inputs);
+				genome[biasOffsets[l] + i] = biases[l][i][0];
+			}
+		}
+	}
+
+	/**
+	 * Create a network around an existing genome, which is not copied
+	 */
+	public NeuralNetwork(final int[] layerSizes, final double[] genome) {
+		this(layerSizes, genome, InferenceVersion.FULL);
+	}
+
+	/**
+	 * Create a network around an existing genome, which is not copied
+	 */
+	public NeuralNetwork(final int[] layerSizes, final double[] genome, final InferenceVersion inferenceVersion) {
+		this(layerSizes, genome, null, genome.length, inferenceVersion);
+	}
+
+	/**
+	 * Create a network around an existing genome of floats, which is not copied
+	 */
+	public NeuralNetwork(final int[] layerSizes, final float[] floatGenome, final InferenceVersion inferenceVersion) {
+		this(layerSizes, null, floatGenome, floatGenome.length, inferenceVersion);
+	}
+
+	private NeuralNetwork(final int[] layerSizes, final double[] genome, final float[] floatGenome, int genomeLength,
+			final InferenceVersion inferenceVersion) {
+		if (layerSizes.length < 2) {
+			throw new RuntimeException("Network needs at least one layer");
+		}
+
+		this.layerSizes = layerSizes.clone();
+		this.weightOffsets = new int[layerSizes.length - 1];
+		this.biasOffsets = new int[layerSizes.length - 1];
+		if (computeOffsets(this.layerSizes, weightOffsets, biasOffsets) != genomeLength) {
+			throw new RuntimeException("Genome length does not match layer sizes");
+		}
+		this.genome = genome;
+		this.floatGenome = floatGenome;
+		this.maxHiddenSize = computeMaxHiddenSize(this.layerSizes);
+		this.inferenceVersion = inferenceVersion;
+	}
+
+	/**
+	 * Empty network of the given shape and precision
+	 */
+	public static NeuralNetwork create(final int[] layerSizes, final Precision precision,
+			final InferenceVersion inferenceVersion) {
+		final int genomeLength = genomeLength(layerSizes);
+		if (precision == Precision.FLOAT) {
+			return new NeuralNetwork(layerSizes, new float[genomeLength], inferenceVersion);
+		}
+		return new NeuralNetwork(layerSizes, new double[genomeLength], inferenceVersion);
+	}
+
+	/**
+	 * This network with its genes stored at the given precision, a copy unless
+	 * it already is
+	 */
+	public NeuralNetwork toPrecision(final Precision precision) {
+		if (precision == getPrecision()) {
+			return this;
+		}
+		if (precision == Precision.FLOAT) {
+			final float[] floats = new float[genome.length];
+			for (int i = 0; i < genome.length; i++) {
+				floats[i] = (float) genome[i];
+			}
+			return new NeuralNetwork(layerSizes, floats, inferenceVersion);
+		}
+		final double[] doubles = new double[floatGenome.length];
+		for (int i = 0; i < floatGenome.length; i++) {
+			doubles[i] = floatGenome[i];
+		}
+		return new NeuralNetwork(layerSizes, doubles, inferenceVersion);
+	}
+
+	/**
+	 * Number of weights and biases in a network of the given shape
+	 */
+	static int genomeLength(final int[] layerSizes) {
+		return computeOffsets(layerSizes, new int[layerSizes.length - 1], new int[layerSizes.length - 1]);
+	}
+
+	// Fill in where each layer starts and return the length of the genome
+	private static int computeOffsets(final int[] layerSizes, final int[] weightOffsets, final int[] biasOffsets) {
+		int offset = 0;
+		for (int l = 0; l < weightOffsets.length; l++) {
+			weightOffsets[l] = offset;
+			offset += layerSizes[l + 1] * layerSizes[l];
+		}
+		for (int l = 0; l < biasOffsets.length; l++) {
+			biasOffsets[l] = offset;
+			offset += layerSizes[l + 1];
+		}
+		return offset;
+	}
+
+	private static int computeMaxHiddenSize(final int[] layerSizes) {
+		int max = 0;
+		for (int l = 1; l < layerSizes.length - 1; l++) {
+			max = Math.max(max, layerSizes[l]);
+		}
+		return max;
 	}
 
 	// Return outputs of this network for given inputs
 	public double[] propagate(final double inputs[]) {
+		final double[] outputs = new double[getNumOutputs()];
+		propagate(inputs, outputs, new double[getScratchSize()]);
+		return outputs;
+	}
 
-		// Convert array into a matrix of 1 column
-		double[][] inputMatrix = new double[inputs.length][1];
+	// Return outputs of this network for given inputs, as a matrix of 1 column
+	public double[] propagate(final double inputs[][]) {
+
+		// Convert matrix of 1 column into an array
+		double[] inputArray = new double[inputs.length];
 		for (int i = 0; i < inputs.length; i++) {
-			inputMatrix[i][0] = inputs[i];
+			inputArray[i] = inputs[i][0];
 		}
 
-		return propagate(inputMatrix);
+		return propagate(inputArray);
 	}
 
-	// Return outputs of this network for given inputs
-	public double[] propagate(final double inputs[][]) {
+	/**
+	 * Compute the outputs of this network without allocating anything. Hidden
+	 * layer results are kept in scratch, which must hold at least
+	 * getScratchSize() values.
+	 */
+	public void propagate(final double[] inputs, final double[] outputs, final double[] scratch) {
+		final int numLayers = layerSizes.length - 1;
+
+		// Bot brains have a single hidden layer, which needs no scratch at all. SIMD
+		// kernels instead multiply layer by layer, over contiguous rows of weights.
+		if (numLayers == 2 && inferenceVersion == InferenceVersion.FULL && !Kernels.ACTIVE.isVectorized()) {
+			if (floatGenome != null) {
+				propagateHiddenLayerFloat(inputs, outputs);
+			} else {
+				propagateHiddenLayer(inputs, outputs);
+			}
+			return;
+		}
 
-		// First multiply inputs with first layer
-		double[][] result = matrixMultiply(layers[0], inputs);
-		result = matrixAdd(result, biases[0]);
-		normalizeMatrix(result);
+		double[] in = inputs;
+		int inOffset = 0;
+		for (int l = 0; l < numLayers; l++) {
+			final boolean last = (l == numLayers - 1);
 
-		// Do matrix multiplication starting from inputs through each layer
-		for (int i = 1; i < layers.length; i++) {
-			result = matrixMultiply(layers[i], result);
-			result = matrixAdd(result, biases[i]);
+			// Hidden layers take turns writing to either half of the scratch space
+			final double[] out = last ? outputs : scratch;
+			final int outOffset = last ? 0 : (l % 2) * maxHiddenSize;
 
 			// Don't normalize the outputs
-			if (i < (layers.length - 1)) {
-				normalizeMatrix(result);
+			if (floatGenome != null) {
+				multiplyLayerFloat(l, in, inOffset, out, outOffset, !last);
+			} else {
+				multiplyLayer(l, in, inOffset, out, outOffset, !last);
+			}
+
+			in = out;
+			inOffset = outOffset;
+		}
+	}
+
+	/**
+	 * Inputs to hidden layer to outputs in one pass. Each hidden neuron is
+	 * activated and then immediately added into every output, adding up the
+	 * same terms in the same order as multiplying layer by layer.
+	 */
+	private void propagateHiddenLayer(final double[] in, final double[] out) {
+		final int inputs = layerSizes[0];
+		final int hidden = layerSizes[1];
+		final int outputs = layerSizes[2];
+		final int hiddenWeights = weightOffsets[0];
+		final int hiddenBiases = biasOffsets[0];
+		final int outputWeights = weightOffsets[1];
+		final int outputBiases = biasOffsets[1];
+
+		for (int o = 0; o < outputs; o++) {
+			out[o] = 0.0;
+		}
+
+		for (int h = 0; h < hidden; h++) {
+			final int row = hiddenWeights + (h * inputs);
+			double sum = 0.0;
+			for (int k = 0; k < inputs; k++) {
+				sum += genome[row + k] * in[k];
+			}
+			final double activation = rectifiedLinearUnit(sum + genome[hiddenBiases + h]);
+
+			// Neurons that didn't fire add nothing to the outputs
+			if (activation == 0) {
+				continue;
+			}
+			for (int o = 0; o < outputs; o++) {
+				out[o] += genome[outputWeights + (o * hidden) + h] * activation;
 			}
 		}
 
-		// Convert results matrix to array
-		double[] resultArray = new double[result.length];
-		for (int i = 0; i < result.length; i++) {
-			resultArray[i] = result[i][0];
+		for (int o = 0; o < outputs; o++) {
+			out[o] += genome[outputBiases + o];
+		}
+	}
+
+	private void multiplyLayer(int layer, final double[] in, int inOffset, final double[] out, int outOffset,
+			boolean rectify) {
+		final int inputs = layerSizes[layer];
+		final int outputs = layerSizes[layer + 1];
+		final int weightOffset = weightOffsets[layer];
+		final int biasOffset = biasOffsets[layer];
+		final int span = getInputSpan(inferenceVersion, inputs);
+
+		for (int i = 0; i < outputs; i++) {
+			final double sum = Kernels.ACTIVE.dot(genome, weightOffset + (i * inputs), in, inOffset, span);
+			out[outOffset + i] = sum + genome[biasOffset + i];
+		}
+		if (rectify) {
+			Kernels.ACTIVE.rectify(out, outOffset, outputs);
+		}
+	}
+
+	// Same as propagateHiddenLayer, adding up floats
+	private void propagateHiddenLayerFloat(final double[] in, final double[] out) {
+		final int inputs = layerSizes[0];
+		final int hidden = layerSizes[1];
+		final int outputs = layerSizes[2];
+		final int hiddenWeights = weightOffsets[0];
+		final int hiddenBiases = biasOffsets[0];
+		final int outputWeights = weightOffsets[1];
+		final int outputBiases = biasOffsets[1];
+
+		for (int o = 0; o < outputs; o++) {
+			out[o] = 0.0;
+		}
+
+		for (int h = 0; h < hidden; h++) {
+			final int row = hiddenWeights + (h * inputs);
+			float sum = 0.0f;
+			for (int k = 0; k < inputs; k++) {
+				sum += floatGenome[row + k] * (float) in[k];
+			}
+			final float activation = Math.max(0.0f, sum + floatGenome[hiddenBiases + h]);
+
+			// Neurons that didn't fire add nothing to the outputs
+			if (activation == 0) {
+				continue;
+			}
+			for (int o = 0; o < outputs; o++) {
+				out[o] = (float) out[o] + floatGenome[outputWeights + (o * hidden) + h] * activation;
+			}
 		}
-		return resultArray;
+
+		for (int o = 0; o < outputs; o++) {
+			out[o] = (float) out[o] + floatGenome[outputBiases + o];
+		}
+	}
+
+	// Same as multiplyLayer, adding up floats
+	private void multiplyLayerFloat(int layer, final double[] in, int inOffset, final double[] out, int outOffset,
+			boolean rectify) {
+		final int inputs = layerSizes[layer];
+		final int outputs = layerSizes[layer + 1];
+		final int weightOffset = weightOffsets[layer];
+		final int biasOffset = biasOffsets[layer];
+		final int span = getInputSpan(inferenceVersion, inputs);
+		final float[] floatInputs = toFloats(in, inOffset, span);
+
+		for (int i = 0; i < outputs; i++) {
+			final float sum = Kernels.ACTIVE.dot(floatGenome, weightOffset + (i * inputs), floatInputs, 0, span);
+			out[outOffset + i] = sum + floatGenome[biasOffset + i];
+		}
+		if (rectify) {
+			Kernels.ACTIVE.rectify(out, outOffset, outputs);
+		}
+	}
+
+	/**
+	 * Values converted to floats, in a buffer reused by each thread
+	 */
+	static float[] toFloats(final double[] values, int offset, int length) {
+		final float[][] buffer = FLOAT_SCRATCH.get();
+		if (buffer[0].length < length) {
+			buffer[0] = new float[length];
+		}
+		final float[] floats = buffer[0];
+		for (int i = 0; i < length; i++) {
+			floats[i] = (float) values[offset + i];
+		}
+		return floats;
+	}
+
+	/**
+	 * Number of neurons of the layer before that each neuron sees
+	 */
+	static int getInputSpan(final InferenceVersion inferenceVersion, int inputs) {
+		return inferenceVersion == InferenceVersion.LEGACY ? Math.min(inputs, 1) : inputs;
 	}
 
 	public static double[][] matrixMultiply(double[][] matrix1, double[][] matrix2) {
 		int rows = matrix1.length;
 		int cols = matrix2[0].length;
+		int inner = matrix2.length;
 		double[][] result = new double[rows][cols];
 
 		// Do dot product multiplication
 		for (int i = 0; i < rows; i++) {
 			for (int j = 0; j < cols; j++) {
-				for (int k = 0; k < cols; k++) {
+				for (int k = 0; k < inner; k++) {
 					result[i][j] += matrix1[i][k] * matrix2[k][j];
 				}
 			}
@@ -129,27 +423,37 @@ public class NeuralNetwork {
 
 	// Squishes all valaues to (0, 1)
 	public static double sigmoid(double input) {
-		return Math.exp(input) / (Math.exp(input) + 1.0);
+		return Activation.EXACT.sigmoid(input);
 	}
 
 	// Squishes all valaues to (-1, 1)
 	public static double tanh(double input) {
-		return Math.tanh(input);
+		return Activation.EXACT.tanh(input);
 	}
 
-	// Randomize all weights
-	public void randomize(double array[][][]) {
-		for (double layer[][] : array) {
-			int rows = layer.length;
-			int cols = layer[0].length;
-			for (int i = 0; i < rows; i++) {
-				for (int j = 0; j < cols; j++) {
-					layer[i][j] = Math.random() * 2.0 - 1.0;
-				}
+	// Randomize all weights and biases
+	public void randomize() {
+		randomize(new SplittableRandom());
+	}
+
+	// Randomize all weights and biases from the given stream
+	public void randomize(final SplittableRandom random) {
+		if (floatGenome != null) {
+			for (int i = 0; i < floatGenome.length; i++) {
+				floatGenome[i] = (float) (random.nextDouble() * 2.0 - 1.0);
 			}
+			return;
+		}
+		for (int i = 0; i < genome.length; i++) {
+			genome[i] = random.nextDouble() * 2.0 - 1.0;
 		}
 	}
 
+	// Value of one gene, whatever the precision
+	public double getGene(int index) {
+		return (floatGenome != null) ? floatGenome[index] : genome[index];
+	}
+
 	public static double[][][] deepCopyArray(double[][][] array) {
 		int x = array.length;
 
@@ -170,20 +474,84 @@ public class NeuralNetwork {
 		return arrayCopy;
 	}
 
+	// Copy of the weights of each layer as [neuron][input]
 	public double[][][] getLayers() {
-		return deepCopyArray(this.layers);
+		final int numLayers = layerSizes.length - 1;
+		final double[][][] layers = new double[numLayers][][];
+		for (int l = 0; l < numLayers; l++) {
+			final int inputs = layerSizes[l];
+			layers[l] = new double[layerSizes[l + 1]][inputs];
+			for (int i = 0; i < layerSizes[l + 1]; i++) {
+				for (int k = 0; k < inputs; k++) {
+					layers[l][i][k] = getGene(weightOffsets[l] + (i * inputs) + k);
+				}
+			}
+		}
+		return layers;
 	}
 
+	// Copy of the biases of each layer as a matrix of 1 column
 	public double[][][] getBiases() {
-		return deepCopyArray(this.biases);
+		final int numLayers = layerSizes.length - 1;
+		final double[][][] biases = new double[numLayers][][];
+		for (int l = 0; l < numLayers; l++) {
+			biases[l] = new double[layerSizes[l + 1]][1];
+			for (int i = 0; i < layerSizes[l + 1]; i++) {
+				biases[l][i][0] = getGene(biasOffsets[l] + i);
+			}
+		}
+		return biases;
+	}
+
+	public int[] getLayerSizes() {
+		return layerSizes.clone();
+	}
+
+	/**
+	 * The genome itself rather than a copy, so it can be saved or bred without
+	 * going through jagged arrays. It must not be modified, and is null when the
+	 * genes are stored as floats.
+	 */
+	public double[] getGenome() {
+		return genome;
+	}
+
+	/**
+	 * The genome of floats, null when the genes are stored as doubles
+	 */
+	public float[] getFloatGenome() {
+		return floatGenome;
+	}
+
+	public Precision getPrecision() {
+		return (floatGenome != null) ? Precision.FLOAT : Precision.DOUBLE;
+	}
+
+	public InferenceVersion getInferenceVersion() {
+		return inferenceVersion;
+	}
+
+	public int getNumInputs() {
+		return layerSizes[0];
+	}
+
+	public int getNumOutputs() {
+		return layerSizes[layerSizes.length - 1];
+	}
+
+	// Number of values propagate needs for hidden layer results
+	public int getScratchSize() {
+		return 2 * maxHiddenSize;
 	}
 
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + Arrays.deepHashCode(biases);
-		result = prime * result + Arrays.deepHashCode(layers);
+		result = prime * result + Arrays.hashCode(genome);
+		result = prime * result + Arrays.hashCode(floatGenome);
+		result = prime * result + Arrays.hashCode(layerSizes);
+		result = prime * result + ((inferenceVersion == null) ? 0 : inferenceVersion.hashCode());
 		return result;
 	}
 
@@ -196,9 +564,13 @@ public class NeuralNetwork {
 		if (getClass() != obj.getClass())
 			return false;
 		NeuralNetwork other = (NeuralNetwork) obj;
-		if (!Arrays.deepEquals(biases, other.biases))
+		if (!Arrays.equals(layerSizes, other.layerSizes))
+			return false;
+		if (!Arrays.equals(genome, other.genome))
+			return false;
+		if (!Arrays.equals(floatGenome, other.floatGenome))
 			return false;
-		if (!Arrays.deepEquals(layers, other.layers))
+		if (inferenceVersion != other.inferenceVersion)
 			return false;
 		return true;
 	}
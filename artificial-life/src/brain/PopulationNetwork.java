@@ -0,0 +1,187 @@
+package brain;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Runs the neural networks of a whole population at once. The weights of every
+ * bot are stacked into one contiguous block per layer, so each layer is a
+ * single pass over memory for all bots rather than one small matrix-vector
+ * product (and its temporary matrices) per bot.
+ *
+ * All networks must share the same shape, inference version and precision,
+ * which is the case for the bots of a generation. Genomes are only recycled
+ * between generations, so the weights can be gathered once per generation and
+ * only need to be loaded again when the population changes.
+ */
+public class PopulationNetwork {
+
+	// Bots run through all layers together, small enough to stay in cache
+	private static final int BLOCK_SIZE = 64;
+
+	private int numNetworks = 0;
+	private int capacity = 0;
+	private int[] layerSizes = new int[0];
+	private InferenceVersion inferenceVersion = InferenceVersion.FULL;
+	private Precision precision = Precision.DOUBLE;
+
+	// For each layer, weights as [network][neuron][input] and biases as
+	// [network][neuron]. Only the arrays of the networks' precision are used.
+	private double[][] weights = new double[0][];
+	private double[][] biases = new double[0][];
+	private float[][] floatWeights = new float[0][];
+	private float[][] floatBiases = new float[0][];
+
+	// Hidden layer results for each network, [network][neuron]
+	private double[][] activations = new double[0][];
+
+	/**
+	 * Stack the weights of the given brains
+	 *
+	 * @return false if the brains do not all share the same shape, version and
+	 *         precision
+	 */
+	public boolean load(final BotBrain[] brains, int numBrains) {
+		this.numNetworks = numBrains;
+		if (numBrains == 0) {
+			this.layerSizes = new int[0];
+			return true;
+		}
+
+		final NeuralNetwork first = brains[0].neuralNet;
+		final int[] sizes = first.getLayerSizes();
+		final int numLayers = sizes.length - 1;
+		for (int n = 1; n < numBrains; n++) {
+			if (!Arrays.equals(brains[n].neuralNet.layerSizes, sizes)
+					|| brains[n].neuralNet.inferenceVersion != first.inferenceVersion
+					|| brains[n].neuralNet.getPrecision() != first.getPrecision()) {
+				return false;
+			}
+		}
+
+		final Precision firstPrecision = first.getPrecision();
+		if (numBrains > capacity || !Arrays.equals(sizes, layerSizes) || firstPrecision != precision) {
+			capacity = numBrains;
+			final boolean floats = (firstPrecision == Precision.FLOAT);
+			weights = new double[floats ? 0 : numLayers][];
+			biases = new double[floats ? 0 : numLayers][];
+			floatWeights = new float[floats ? numLayers : 0][];
+			floatBiases = new float[floats ? numLayers : 0][];
+			activations = new double[numLayers - 1][];
+			for (int l = 0; l < numLayers; l++) {
+				if (floats) {
+					floatWeights[l] = new float[numBrains * sizes[l + 1] * sizes[l]];
+					floatBiases[l] = new float[numBrains * sizes[l + 1]];
+				} else {
+					weights[l] = new double[numBrains * sizes[l + 1] * sizes[l]];
+					biases[l] = new double[numBrains * sizes[l + 1]];
+				}
+				if (l < numLayers - 1) {
+					activations[l] = new double[numBrains * sizes[l + 1]];
+				}
+			}
+		}
+		this.layerSizes = sizes;
+		this.inferenceVersion = first.inferenceVersion;
+		this.precision = firstPrecision;
+
+		for (int n = 0; n < numBrains; n++) {
+			final NeuralNetwork network = brains[n].neuralNet;
+			for (int l = 0; l < numLayers; l++) {
+				final int outputs = sizes[l + 1];
+				final int inputs = sizes[l];
+				if (precision == Precision.FLOAT) {
+					System.arraycopy(network.floatGenome, network.weightOffsets[l], floatWeights[l],
+							n * outputs * inputs, outputs * inputs);
+					System.arraycopy(network.floatGenome, network.biasOffsets[l], floatBiases[l], n * outputs,
+							outputs);
+				} else {
+					System.arraycopy(network.genome, network.weightOffsets[l], weights[l], n * outputs * inputs,
+							outputs * inputs);
+					System.arraycopy(network.genome, network.biasOffsets[l], biases[l], n * outputs, outputs);
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Compute the outputs of every network. Inputs are laid out as
+	 * [network][input] and outputs as [network][output], the same results as
+	 * calling NeuralNetwork.propagate for each network in turn.
+	 */
+	public void propagate(final double[] inputs, final double[] outputs, boolean parallel) {
+		final int numBlocks = (numNetworks + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		if (parallel) {
+			IntStream.range(0, numBlocks).parallel().forEach(block -> propagateBlock(block, inputs, outputs));
+		} else {
+			for (int block = 0; block < numBlocks; block++) {
+				propagateBlock(block, inputs, outputs);
+			}
+		}
+	}
+
+	private void propagateBlock(int block, final double[] inputs, final double[] outputs) {
+		final int first = block * BLOCK_SIZE;
+		final int last = Math.min(numNetworks, first + BLOCK_SIZE);
+		final int numLayers = layerSizes.length - 1;
+
+		for (int l = 0; l < numLayers; l++) {
+			final double[] in = (l == 0) ? inputs : activations[l - 1];
+			final double[] out = (l == numLayers - 1) ? outputs : activations[l];
+			final int span = NeuralNetwork.getInputSpan(inferenceVersion, layerSizes[l]);
+			if (precision == Precision.FLOAT) {
+				multiplyLayer(floatWeights[l], floatBiases[l], layerSizes[l], layerSizes[l + 1], span, in, out,
+						first, last, l < numLayers - 1);
+			} else {
+				multiplyLayer(weights[l], biases[l], layerSizes[l], layerSizes[l + 1], span, in, out, first, last,
+						l < numLayers - 1);
+			}
+		}
+	}
+
+	private static void multiplyLayer(final double[] weights, final double[] biases, int inputs, int outputs,
+			int span, final double[] in, final double[] out, int first, int last, boolean rectify) {
+
+		for (int n = first; n < last; n++) {
+			final int inOffset = n * inputs;
+			final int outOffset = n * outputs;
+			for (int i = 0; i < outputs; i++) {
+				final int weightOffset = (outOffset + i) * inputs;
+				final double sum = Kernels.ACTIVE.dot(weights, weightOffset, in, inOffset, span);
+				out[outOffset + i] = sum + biases[outOffset + i];
+			}
+			if (rectify) {
+				Kernels.ACTIVE.rectify(out, outOffset, outputs);
+			}
+		}
+	}
+
+	// Same as above, adding up floats
+	private static void multiplyLayer(final float[] weights, final float[] biases, int inputs, int outputs,
+			int span, final double[] in, final double[] out, int first, int last, boolean rectify) {
+
+		for (int n = first; n < last; n++) {
+			final int inOffset = n * inputs;
+			final int outOffset = n * outputs;
+			final float[] floatInputs = NeuralNetwork.toFloats(in, inOffset, span);
+			for (int i = 0; i < outputs; i++) {
+				final int weightOffset = (outOffset + i) * inputs;
+				final float sum = Kernels.ACTIVE.dot(weights, weightOffset, floatInputs, 0, span);
+				out[outOffset + i] = sum + biases[outOffset + i];
+			}
+			if (rectify) {
+				Kernels.ACTIVE.rectify(out, outOffset, outputs);
+			}
+		}
+	}
+
+	public int getNumInputs() {
+		return layerSizes.length == 0 ? 0 : layerSizes[0];
+	}
+
+	public int getNumOutputs() {
+		return layerSizes.length == 0 ? 0 : layerSizes[layerSizes.length - 1];
+	}
+
+}
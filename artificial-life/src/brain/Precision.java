@@ -0,0 +1,14 @@
+package brain;
+
+/**
+ * How the genes of a NeuralNetwork are stored and computed
+ */
+public enum Precision {
+
+	// 64 bit genes
+	DOUBLE,
+
+	// 32 bit genes, half the memory and save file size of DOUBLE
+	FLOAT
+
+}
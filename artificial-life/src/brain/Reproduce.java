@@ -1,159 +1,256 @@
 package brain;
 
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
 public class Reproduce {
 
+	// Choices of sample(), drawn before taking any genes and reused by each thread
+	private static final ThreadLocal<boolean[][]> TAKE_FIRST = ThreadLocal.withInitial(() -> new boolean[][] { {} });
+
 	public static NeuralNetwork clone(final NeuralNetwork parent) {
-		return new NeuralNetwork(parent.getLayers(), parent.getBiases());
+		return clone(parent, null);
+	}
+
+	/**
+	 * Same as above, filling a genome from the pool unless it is null
+	 */
+	public static NeuralNetwork clone(final NeuralNetwork parent, final GenomePool pool) {
+		if (parent.floatGenome != null) {
+			final float[] kidGenome = newFloats(parent.floatGenome.length, pool);
+			System.arraycopy(parent.floatGenome, 0, kidGenome, 0, kidGenome.length);
+			return new NeuralNetwork(parent.layerSizes, kidGenome, parent.inferenceVersion);
+		}
+		final double[] kidGenome = newDoubles(parent.genome.length, pool);
+		System.arraycopy(parent.genome, 0, kidGenome, 0, kidGenome.length);
+		return new NeuralNetwork(parent.layerSizes, kidGenome, parent.inferenceVersion);
+	}
+
+	// Genome for a kid, with leftover genes when it comes from the pool, so
+	// every gene must be written
+	private static double[] newDoubles(int length, final GenomePool pool) {
+		return (pool == null) ? new double[length] : pool.takeDoubles(length);
 	}
 
-	private static double[][][] mutate(double[][][] array1, double mutationRate) {
-				
-		int x = array1.length;
-		
-		double arrayMutated[][][] = new double[x][][];
-		
+	private static float[] newFloats(int length, final GenomePool pool) {
+		return (pool == null) ? new float[length] : pool.takeFloats(length);
+	}
+
+	private static boolean[] takeFirst(int length) {
+		final boolean[][] scratch = TAKE_FIRST.get();
+		if (scratch[0].length < length) {
+			scratch[0] = new boolean[length];
+		}
+		return scratch[0];
+	}
+
+	private static void mutate(double[] genome1, double mutationRate, final SplittableRandom random,
+			double[] genomeMutated) {
+
+		int x = genome1.length;
+
 		for (int i = 0; i < x; i++) {
-			int y = array1[i].length;
-			arrayMutated[i] = new double[y][];
-			for (int j = 0; j < y; j++) {
-				int z = array1[i][j].length;
-				arrayMutated[i][j] = new double[z];
-				for (int k = 0; k < z; k++) {
-					if (Math.random() < mutationRate) {
-						arrayMutated[i][j][k] = Math.random() * 2.0 - 1.0;
-					} else {
-						arrayMutated[i][j][k] = array1[i][j][k];
-					}
-				}
+			if (random.nextDouble() < mutationRate) {
+				genomeMutated[i] = random.nextDouble() * 2.0 - 1.0;
+			} else {
+				genomeMutated[i] = genome1[i];
+			}
+		}
+	}
+
+	private static void mutate(float[] genome1, double mutationRate, final SplittableRandom random,
+			float[] genomeMutated) {
+
+		int x = genome1.length;
+
+		for (int i = 0; i < x; i++) {
+			if (random.nextDouble() < mutationRate) {
+				genomeMutated[i] = (float) (random.nextDouble() * 2.0 - 1.0);
+			} else {
+				genomeMutated[i] = genome1[i];
 			}
 		}
-		
-		return arrayMutated;
 	}
 
 	public static NeuralNetwork mutate(final NeuralNetwork mom, double mutationRate) {
+		return mutate(mom, mutationRate, new SplittableRandom());
+	}
 
-		double[][][] momLayers = mom.getLayers();
-		double[][][] momBiases = mom.getBiases();
+	public static NeuralNetwork mutate(final NeuralNetwork mom, double mutationRate, final SplittableRandom random) {
+		return mutate(mom, mutationRate, random, null);
+	}
 
-		double[][][] kidLayers = mutate(momLayers, mutationRate);
-		double[][][] kidBiases = mutate(momBiases, mutationRate);
+	public static NeuralNetwork mutate(final NeuralNetwork mom, double mutationRate, final SplittableRandom random,
+			final GenomePool pool) {
 
-		return new NeuralNetwork(kidLayers, kidBiases);
+		if (mom.floatGenome != null) {
+			float[] kidGenome = newFloats(mom.floatGenome.length, pool);
+			mutate(mom.floatGenome, mutationRate, random, kidGenome);
+			return new NeuralNetwork(mom.layerSizes, kidGenome, mom.inferenceVersion);
+		}
+
+		double[] kidGenome = newDoubles(mom.genome.length, pool);
+		mutate(mom.genome, mutationRate, random, kidGenome);
+
+		return new NeuralNetwork(mom.layerSizes, kidGenome, mom.inferenceVersion);
 	}
 
-	private static double[][][] tweak(double[][][] array1, double mutationRate) {
-		
-		int x = array1.length;
-		
-		double arrayMutated[][][] = new double[x][][];
-		
+	// A tweaked gene has always scaled the zero of a freshly allocated genome
+	// rather than mom's gene, so it comes out as zero. Kept as is, drawing the
+	// scale all the same, so seeded runs repeat.
+	private static void tweak(double[] genome1, double mutationRate, final SplittableRandom random,
+			double[] genomeMutated) {
+
+		int x = genome1.length;
+
 		for (int i = 0; i < x; i++) {
-			int y = array1[i].length;
-			arrayMutated[i] = new double[y][];
-			for (int j = 0; j < y; j++) {
-				int z = array1[i][j].length;
-				arrayMutated[i][j] = new double[z];
-				for (int k = 0; k < z; k++) {
-					if (Math.random() < mutationRate) {
-						arrayMutated[i][j][k] *= (1.0 + (Math.random() * 0.20 - 0.1));
-					} else {
-						arrayMutated[i][j][k] = array1[i][j][k];
-					}
-				}
+			if (random.nextDouble() < mutationRate) {
+				genomeMutated[i] = 0.0 * (1.0 + (random.nextDouble() * 0.20 - 0.1));
+			} else {
+				genomeMutated[i] = genome1[i];
+			}
+		}
+	}
+
+	private static void tweak(float[] genome1, double mutationRate, final SplittableRandom random,
+			float[] genomeMutated) {
+
+		int x = genome1.length;
+
+		for (int i = 0; i < x; i++) {
+			if (random.nextDouble() < mutationRate) {
+				genomeMutated[i] = (float) (0.0 * (1.0 + (random.nextDouble() * 0.20 - 0.1)));
+			} else {
+				genomeMutated[i] = genome1[i];
 			}
 		}
-		
-		return arrayMutated;
 	}
-	
+
 	public static NeuralNetwork tweak(final NeuralNetwork mom, double mutationRate) {
+		return tweak(mom, mutationRate, new SplittableRandom());
+	}
 
-		double[][][] momLayers = mom.getLayers();
-		double[][][] momBiases = mom.getBiases();
+	public static NeuralNetwork tweak(final NeuralNetwork mom, double mutationRate, final SplittableRandom random) {
+		return tweak(mom, mutationRate, random, null);
+	}
 
-		double[][][] kidLayers = tweak(momLayers, mutationRate);
-		double[][][] kidBiases = tweak(momBiases, mutationRate);
+	public static NeuralNetwork tweak(final NeuralNetwork mom, double mutationRate, final SplittableRandom random,
+			final GenomePool pool) {
 
-		return new NeuralNetwork(kidLayers, kidBiases);
+		if (mom.floatGenome != null) {
+			float[] kidGenome = newFloats(mom.floatGenome.length, pool);
+			tweak(mom.floatGenome, mutationRate, random, kidGenome);
+			return new NeuralNetwork(mom.layerSizes, kidGenome, mom.inferenceVersion);
+		}
+
+		double[] kidGenome = newDoubles(mom.genome.length, pool);
+		tweak(mom.genome, mutationRate, random, kidGenome);
+
+		return new NeuralNetwork(mom.layerSizes, kidGenome, mom.inferenceVersion);
 	}
-	
-	private static double[][][] average(double[][][] array1, double[][][] array2) {
 
-		int x = array1.length;
-		
-		double arrayAverage[][][] = new double[x][][];
-		
-		for (int i = 0; i < x; i++) {
-			int y = array1[i].length;
-			arrayAverage[i] = new double[y][];
-			for (int j = 0; j < y; j++) {
-				int z = array1[i][j].length;
-				arrayAverage[i][j] = new double[z];
-				for (int k = 0; k < z; k++) {
-					arrayAverage[i][j][k] = (array1[i][j][k] + array2[i][j][k]) / 2.0;
+	/**
+	 * Dad laid out in the shape and precision of mom. Parents differ in shape
+	 * when the brain size is changed mid run, and then the kid takes mom's shape
+	 * with dad's genes for the neurons and inputs they have in common.
+	 */
+	private static NeuralNetwork align(final NeuralNetwork mom, final NeuralNetwork dad) {
+		if (Arrays.equals(mom.layerSizes, dad.layerSizes)) {
+			return dad.toPrecision(mom.getPrecision());
+		}
+
+		final NeuralNetwork aligned = NeuralNetwork.create(mom.layerSizes, Precision.DOUBLE, mom.inferenceVersion);
+		for (int l = 0; l < mom.weightOffsets.length; l++) {
+			final int inputs = mom.layerSizes[l];
+			final int outputs = mom.layerSizes[l + 1];
+			if (l >= dad.weightOffsets.length || dad.layerSizes[l] < inputs || dad.layerSizes[l + 1] < outputs) {
+				throw new RuntimeException("Dad's brain is smaller than mom's");
+			}
+			for (int i = 0; i < outputs; i++) {
+				for (int k = 0; k < inputs; k++) {
+					aligned.genome[mom.weightOffsets[l] + (i * inputs) + k] = dad
+							.getGene(dad.weightOffsets[l] + (i * dad.layerSizes[l]) + k);
 				}
+				aligned.genome[mom.biasOffsets[l] + i] = dad.getGene(dad.biasOffsets[l] + i);
 			}
 		}
-
-		return arrayAverage;
+		return aligned.toPrecision(mom.getPrecision());
 	}
 
 	/**
 	 * Create child network as average weights and biases between two parents
 	 */
 	public static NeuralNetwork average(final NeuralNetwork mom, final NeuralNetwork dad) {
-		double[][][] momLayers = mom.getLayers();
-		double[][][] momBiases = mom.getBiases();
+		return average(mom, dad, null);
+	}
 
-		double[][][] dadLayers = dad.getLayers();
-		double[][][] dadBiases = dad.getBiases();
+	public static NeuralNetwork average(final NeuralNetwork mom, final NeuralNetwork dad, final GenomePool pool) {
+		final NeuralNetwork alignedDad = align(mom, dad);
 
-		double[][][] kidLayers = average(momLayers, dadLayers);
-		double[][][] kidBiases = average(momBiases, dadBiases);
+		if (mom.floatGenome != null) {
+			float[] kidGenome = newFloats(mom.floatGenome.length, pool);
+			Kernels.ACTIVE.average(mom.floatGenome, alignedDad.floatGenome, kidGenome);
+			return new NeuralNetwork(mom.layerSizes, kidGenome, mom.inferenceVersion);
+		}
 
-		return new NeuralNetwork(kidLayers, kidBiases);
+		double[] kidGenome = newDoubles(mom.genome.length, pool);
+		Kernels.ACTIVE.average(mom.genome, alignedDad.genome, kidGenome);
+
+		return new NeuralNetwork(mom.layerSizes, kidGenome, mom.inferenceVersion);
 	}
 
-	private static double[][][] sample(double[][][] array1, double[][][] array2, double bias) {
+	private static void sample(double[] genome1, double[] genome2, double bias, final SplittableRandom random,
+			double[] genomeSampled) {
+
+		int x = genome1.length;
 
-		int x = array1.length;
-		
-		double arraySampled[][][] = new double[x][][];
-		
+		// Draw every choice first, then take the genes together
+		boolean takeFirst[] = takeFirst(x);
 		for (int i = 0; i < x; i++) {
-			int y = array1[i].length;
-			arraySampled[i] = new double[y][];
-			for (int j = 0; j < y; j++) {
-				int z = array1[i][j].length;
-				arraySampled[i][j] = new double[z];
-				for (int k = 0; k < z; k++) {
-					if (Math.random() < bias) {
-						arraySampled[i][j][k] = array1[i][j][k];
-					} else {
-						arraySampled[i][j][k] = array2[i][j][k];
-					}
-				}
-			}
+			takeFirst[i] = random.nextDouble() < bias;
 		}
+		Kernels.ACTIVE.select(genome1, genome2, takeFirst, genomeSampled);
+	}
+
+	private static void sample(float[] genome1, float[] genome2, double bias, final SplittableRandom random,
+			float[] genomeSampled) {
 
-		return arraySampled;
+		int x = genome1.length;
+
+		// Draw every choice first, then take the genes together
+		boolean takeFirst[] = takeFirst(x);
+		for (int i = 0; i < x; i++) {
+			takeFirst[i] = random.nextDouble() < bias;
+		}
+		Kernels.ACTIVE.select(genome1, genome2, takeFirst, genomeSampled);
 	}
 
 	/**
 	 * Create child by randomly sampling either mom or dad weights and biases
 	 */
 	public static NeuralNetwork sample(final NeuralNetwork mom, final NeuralNetwork dad, double momsGenes) {
-		double[][][] momLayers = mom.getLayers();
-		double[][][] momBiases = mom.getBiases();
+		return sample(mom, dad, momsGenes, new SplittableRandom());
+	}
 
-		double[][][] dadLayers = dad.getLayers();
-		double[][][] dadBiases = dad.getBiases();
+	public static NeuralNetwork sample(final NeuralNetwork mom, final NeuralNetwork dad, double momsGenes,
+			final SplittableRandom random) {
+		return sample(mom, dad, momsGenes, random, null);
+	}
+
+	public static NeuralNetwork sample(final NeuralNetwork mom, final NeuralNetwork dad, double momsGenes,
+			final SplittableRandom random, final GenomePool pool) {
+		final NeuralNetwork alignedDad = align(mom, dad);
+
+		if (mom.floatGenome != null) {
+			float[] kidGenome = newFloats(mom.floatGenome.length, pool);
+			sample(mom.floatGenome, alignedDad.floatGenome, momsGenes, random, kidGenome);
+			return new NeuralNetwork(mom.layerSizes, kidGenome, mom.inferenceVersion);
+		}
 
-		double[][][] kidLayers = sample(momLayers, dadLayers, momsGenes);
-		double[][][] kidBiases = sample(momBiases, dadBiases, momsGenes);
+		double[] kidGenome = newDoubles(mom.genome.length, pool);
+		sample(mom.genome, alignedDad.genome, momsGenes, random, kidGenome);
 
-		return new NeuralNetwork(kidLayers, kidBiases);
+		return new NeuralNetwork(mom.layerSizes, kidGenome, mom.inferenceVersion);
 	}
 
 }
@@ -0,0 +1,71 @@
+package brain;
+
+/**
+ * Kernels as plain loops, adding up in order from the first element
+ */
+class ScalarKernels implements Kernels {
+
+	@Override
+	public double dot(double[] weights, int weightOffset, double[] inputs, int inputOffset, int length) {
+		double sum = 0.0;
+		for (int k = 0; k < length; k++) {
+			sum += weights[weightOffset + k] * inputs[inputOffset + k];
+		}
+		return sum;
+	}
+
+	@Override
+	public float dot(float[] weights, int weightOffset, float[] inputs, int inputOffset, int length) {
+		float sum = 0.0f;
+		for (int k = 0; k < length; k++) {
+			sum += weights[weightOffset + k] * inputs[inputOffset + k];
+		}
+		return sum;
+	}
+
+	@Override
+	public void rectify(double[] values, int offset, int length) {
+		for (int i = offset; i < offset + length; i++) {
+			values[i] = NeuralNetwork.rectifiedLinearUnit(values[i]);
+		}
+	}
+
+	@Override
+	public void average(double[] genome1, double[] genome2, double[] result) {
+		for (int i = 0; i < result.length; i++) {
+			result[i] = (genome1[i] + genome2[i]) / 2.0;
+		}
+	}
+
+	@Override
+	public void average(float[] genome1, float[] genome2, float[] result) {
+		for (int i = 0; i < result.length; i++) {
+			result[i] = (genome1[i] + genome2[i]) / 2.0f;
+		}
+	}
+
+	@Override
+	public void select(double[] genome1, double[] genome2, boolean[] takeFirst, double[] result) {
+		for (int i = 0; i < result.length; i++) {
+			result[i] = takeFirst[i] ? genome1[i] : genome2[i];
+		}
+	}
+
+	@Override
+	public void select(float[] genome1, float[] genome2, boolean[] takeFirst, float[] result) {
+		for (int i = 0; i < result.length; i++) {
+			result[i] = takeFirst[i] ? genome1[i] : genome2[i];
+		}
+	}
+
+	@Override
+	public boolean isVectorized() {
+		return false;
+	}
+
+	@Override
+	public String getName() {
+		return "scalar";
+	}
+
+}
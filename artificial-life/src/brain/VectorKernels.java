@@ -0,0 +1,141 @@
+package brain;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernels using the widest SIMD lanes of the machine. Dot products add up one
+ * lane at a time and then across lanes, so their results can differ from the
+ * scalar kernels in the last bits. Averages and selections are exact.
+ *
+ * Compiling and running this needs "--add-modules jdk.incubator.vector".
+ */
+class VectorKernels implements Kernels {
+
+	private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+
+	@Override
+	public double dot(double[] weights, int weightOffset, double[] inputs, int inputOffset, int length) {
+		final int bound = DOUBLES.loopBound(length);
+		int k = 0;
+		double sum = 0.0;
+		if (bound > 0) {
+			DoubleVector lanes = DoubleVector.zero(DOUBLES);
+			for (; k < bound; k += DOUBLES.length()) {
+				final DoubleVector w = DoubleVector.fromArray(DOUBLES, weights, weightOffset + k);
+				final DoubleVector x = DoubleVector.fromArray(DOUBLES, inputs, inputOffset + k);
+				lanes = w.fma(x, lanes);
+			}
+			sum = lanes.reduceLanes(VectorOperators.ADD);
+		}
+		for (; k < length; k++) {
+			sum += weights[weightOffset + k] * inputs[inputOffset + k];
+		}
+		return sum;
+	}
+
+	@Override
+	public float dot(float[] weights, int weightOffset, float[] inputs, int inputOffset, int length) {
+		final int bound = FLOATS.loopBound(length);
+		int k = 0;
+		float sum = 0.0f;
+		if (bound > 0) {
+			FloatVector lanes = FloatVector.zero(FLOATS);
+			for (; k < bound; k += FLOATS.length()) {
+				final FloatVector w = FloatVector.fromArray(FLOATS, weights, weightOffset + k);
+				final FloatVector x = FloatVector.fromArray(FLOATS, inputs, inputOffset + k);
+				lanes = w.fma(x, lanes);
+			}
+			sum = lanes.reduceLanes(VectorOperators.ADD);
+		}
+		for (; k < length; k++) {
+			sum += weights[weightOffset + k] * inputs[inputOffset + k];
+		}
+		return sum;
+	}
+
+	@Override
+	public void rectify(double[] values, int offset, int length) {
+		final int bound = DOUBLES.loopBound(length);
+		int i = 0;
+		for (; i < bound; i += DOUBLES.length()) {
+			DoubleVector.fromArray(DOUBLES, values, offset + i).max(0.0).intoArray(values, offset + i);
+		}
+		for (; i < length; i++) {
+			values[offset + i] = NeuralNetwork.rectifiedLinearUnit(values[offset + i]);
+		}
+	}
+
+	@Override
+	public void average(double[] genome1, double[] genome2, double[] result) {
+		final int bound = DOUBLES.loopBound(result.length);
+		int i = 0;
+		for (; i < bound; i += DOUBLES.length()) {
+			final DoubleVector a = DoubleVector.fromArray(DOUBLES, genome1, i);
+			final DoubleVector b = DoubleVector.fromArray(DOUBLES, genome2, i);
+			a.add(b).mul(0.5).intoArray(result, i);
+		}
+		for (; i < result.length; i++) {
+			result[i] = (genome1[i] + genome2[i]) / 2.0;
+		}
+	}
+
+	@Override
+	public void average(float[] genome1, float[] genome2, float[] result) {
+		final int bound = FLOATS.loopBound(result.length);
+		int i = 0;
+		for (; i < bound; i += FLOATS.length()) {
+			final FloatVector a = FloatVector.fromArray(FLOATS, genome1, i);
+			final FloatVector b = FloatVector.fromArray(FLOATS, genome2, i);
+			a.add(b).mul(0.5f).intoArray(result, i);
+		}
+		for (; i < result.length; i++) {
+			result[i] = (genome1[i] + genome2[i]) / 2.0f;
+		}
+	}
+
+	@Override
+	public void select(double[] genome1, double[] genome2, boolean[] takeFirst, double[] result) {
+		final int bound = DOUBLES.loopBound(result.length);
+		int i = 0;
+		for (; i < bound; i += DOUBLES.length()) {
+			final VectorMask<Double> mask = VectorMask.fromArray(DOUBLES, takeFirst, i);
+			final DoubleVector a = DoubleVector.fromArray(DOUBLES, genome1, i);
+			final DoubleVector b = DoubleVector.fromArray(DOUBLES, genome2, i);
+			b.blend(a, mask).intoArray(result, i);
+		}
+		for (; i < result.length; i++) {
+			result[i] = takeFirst[i] ? genome1[i] : genome2[i];
+		}
+	}
+
+	@Override
+	public void select(float[] genome1, float[] genome2, boolean[] takeFirst, float[] result) {
+		final int bound = FLOATS.loopBound(result.length);
+		int i = 0;
+		for (; i < bound; i += FLOATS.length()) {
+			final VectorMask<Float> mask = VectorMask.fromArray(FLOATS, takeFirst, i);
+			final FloatVector a = FloatVector.fromArray(FLOATS, genome1, i);
+			final FloatVector b = FloatVector.fromArray(FLOATS, genome2, i);
+			b.blend(a, mask).intoArray(result, i);
+		}
+		for (; i < result.length; i++) {
+			result[i] = takeFirst[i] ? genome1[i] : genome2[i];
+		}
+	}
+
+	@Override
+	public boolean isVectorized() {
+		return true;
+	}
+
+	@Override
+	public String getName() {
+		return "vector (" + DOUBLES.length() + " doubles or " + FLOATS.length() + " floats at a time)";
+	}
+
+}
@@ -0,0 +1,317 @@
+package cli;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Properties;
+
+import brain.Precision;
+import io.StateSerializer;
+import life.Archipelago;
+import life.BotLife;
+import life.Configuration;
+import life.PhaseTimer;
+
+/**
+ * Trains bots from the command line, without any windows, as fast as the
+ * machine allows.
+ *
+ * Usage: HeadlessTrainer [options] [settings.properties | settings.json | state.bot]
+ *
+ * Options:
+ *   --generations N      stop after N more generations
+ *   --minutes M          stop after M minutes of training
+ *   --autosave FILE      where to autosave (default saves/autosave.bot, or
+ *                        saves/autosave.islands when training islands)
+ *   --autosave-every N   generations between autosaves, 0 to disable (default 10)
+ *   --brain-precision P  store brains as DOUBLE or FLOAT, converting the brains
+ *                        of a loaded save
+ *
+ * Settings files use the names of the Configuration properties, for example
+ * "generationSize=50" in a properties file or {"generationSize": 50} in JSON.
+ * Setting numIslands above 1, or resuming from a .islands save, trains an
+ * Archipelago of populations instead of a single one.
+ */
+public class HeadlessTrainer {
+
+	private long generationsToRun = Long.MAX_VALUE;
+	private long millisToRun = Long.MAX_VALUE;
+	private File autosaveFile = null;
+	private int autosaveFrequency = 10;
+
+	private BotLife botLife = new BotLife(Configuration.createDefaultConfiguration());
+	private Archipelago archipelago = null;
+
+	public static void main(String args[]) throws IOException, InterruptedException {
+		final HeadlessTrainer trainer = new HeadlessTrainer();
+
+		File stateFile = null;
+		Precision precision = null;
+		for (int i = 0; i < args.length; i++) {
+			if ("--generations".equals(args[i])) {
+				trainer.generationsToRun = Long.parseLong(args[++i]);
+			} else if ("--minutes".equals(args[i])) {
+				trainer.millisToRun = (long) (Double.parseDouble(args[++i]) * 60_000);
+			} else if ("--autosave".equals(args[i])) {
+				trainer.autosaveFile = new File(args[++i]);
+			} else if ("--autosave-every".equals(args[i])) {
+				trainer.autosaveFrequency = Integer.parseInt(args[++i]);
+			} else if ("--brain-precision".equals(args[i])) {
+				precision = Precision.valueOf(args[++i].toUpperCase());
+			} else {
+				stateFile = new File(args[i]);
+			}
+		}
+
+		if (stateFile != null && stateFile.getName().toLowerCase().endsWith(".islands")) {
+			System.out.println("Loading islands from " + stateFile);
+			trainer.archipelago = StateSerializer
+					.deserializeArchipelago(StateSerializer.loadBytesFromFile(stateFile), precision);
+		} else if (stateFile != null) {
+			trainer.botLife = loadBotLife(stateFile, precision);
+		} else if (precision != null) {
+			final Configuration config = Configuration.createDefaultConfiguration();
+			config.setBrainPrecision(precision);
+			trainer.botLife = new BotLife(config);
+		}
+
+		if (trainer.archipelago == null && trainer.botLife.getConfig().getNumIslands() > 1) {
+			trainer.archipelago = new Archipelago(trainer.botLife.getConfig());
+		}
+
+		if (trainer.archipelago != null) {
+			if (trainer.autosaveFile == null) {
+				trainer.autosaveFile = new File("saves/autosave.islands");
+			}
+			trainer.trainIslands();
+		} else {
+			if (trainer.autosaveFile == null) {
+				trainer.autosaveFile = new File("saves/autosave.bot");
+			}
+			trainer.train();
+		}
+	}
+
+	public void train() {
+		final Configuration config = this.botLife.getConfig();
+		config.setStarted(true);
+
+		System.out.println("Training " + config.getGenerationSize() + " bots from generation #"
+				+ botLife.getGenerationNumber() + " with seed " + config.getRandomSeed() + " using "
+				+ Runtime.getRuntime().availableProcessors() + " cores");
+
+		final long trainingStart = System.nanoTime();
+		long generationStart = trainingStart;
+		long generationsRun = 0;
+		long timeStepsRun = 0;
+
+		while (generationsRun < this.generationsToRun
+				&& ((System.nanoTime() - trainingStart) / 1_000_000) < this.millisToRun) {
+
+			this.botLife.doTimeStep(true);
+			timeStepsRun++;
+
+			// Every new generation report throughput and save state to autosave file...
+			if (this.botLife.getTimeStepNumber() == 0) {
+				generationsRun++;
+
+				final long now = System.nanoTime();
+				final double generationSeconds = (now - generationStart) / 1_000_000_000.0;
+				final double totalSeconds = (now - trainingStart) / 1_000_000_000.0;
+				System.out.println(String.format(
+						"Generation #%d took %.2fs, %.0f time steps/s, %.0f bot steps/s, %.2f generations/min overall",
+						this.botLife.getGenerationNumber() - 1, generationSeconds,
+						config.getTimeStepsPerGeneration() / generationSeconds,
+						(config.getTimeStepsPerGeneration() * (double) this.botLife.getBots().size()
+								- this.botLife.getLastGenerationBotStepsSaved()) / generationSeconds,
+						(60.0 * generationsRun) / totalSeconds));
+				generationStart = now;
+
+				if (this.autosaveFrequency > 0 && (this.botLife.getGenerationNumber() % this.autosaveFrequency) == 0) {
+					autosave();
+				}
+			}
+		}
+
+		final double totalSeconds = (System.nanoTime() - trainingStart) / 1_000_000_000.0;
+		System.out.println(String.format("Finished %d generations (%d time steps) in %.1fs, %.0f time steps/s",
+				generationsRun, timeStepsRun, totalSeconds, timeStepsRun / totalSeconds));
+
+		if (this.autosaveFrequency > 0) {
+			autosave();
+		}
+	}
+
+	public void trainIslands() throws InterruptedException {
+		final Configuration config = this.archipelago.getConfig();
+		config.setStarted(true);
+
+		System.out.println("Training " + this.archipelago.getIslands().size() + " islands of "
+				+ config.getGenerationSize() + " bots, migrating every " + config.getMigrationInterval()
+				+ " generations (" + config.getIslandTopology() + ") with seed " + config.getRandomSeed());
+
+		final long trainingStart = System.nanoTime();
+		long generationsRun = 0;
+
+		while (generationsRun < this.generationsToRun
+				&& ((System.nanoTime() - trainingStart) / 1_000_000) < this.millisToRun) {
+
+			// The last epoch may be short, so exactly the generations asked for run
+			final long epochStart = System.nanoTime();
+			final int generations = (int) Math.min(config.getMigrationInterval(),
+					this.generationsToRun - generationsRun);
+			final List<String> stats = this.archipelago.doEpoch(generations);
+			generationsRun += generations;
+
+			final double epochSeconds = (System.nanoTime() - epochStart) / 1_000_000_000.0;
+			for (int i = 0; i < stats.size(); i++) {
+				System.out.println("Island " + i + ": " + stats.get(i));
+			}
+			String report = String.format("%d generations per island took %.2fs, %.0f time steps/s", generations,
+					epochSeconds, (generations * (double) config.getTimeStepsPerGeneration()
+							* this.archipelago.getIslands().size()) / epochSeconds);
+			if (!this.archipelago.getHallOfFame().isEmpty()) {
+				final Archipelago.Champion best = this.archipelago.getHallOfFame().get(0);
+				report += String.format(", hall of fame best: %.0f (island %d, generation #%d)", best.getFitness(),
+						best.getIsland(), best.getGeneration());
+			}
+			System.out.println(report);
+
+			if (this.autosaveFrequency > 0) {
+				autosave();
+			}
+		}
+
+		this.archipelago.shutdown();
+	}
+
+	private void autosave() {
+		final File directory = this.autosaveFile.getAbsoluteFile().getParentFile();
+		if (directory != null) {
+			directory.mkdirs();
+		}
+		final long start = System.nanoTime();
+		if (this.archipelago != null) {
+			StateSerializer.saveState(this.autosaveFile, this.archipelago);
+			PhaseTimer.recordAutosave(this.archipelago.getConfig(), start);
+		} else {
+			StateSerializer.saveState(this.autosaveFile, this.botLife);
+			PhaseTimer.recordAutosave(this.botLife.getConfig(), start);
+		}
+	}
+
+	/**
+	 * Resume from a saved state, or start fresh from a settings file
+	 */
+	public static BotLife loadBotLife(final File file) throws IOException {
+		return loadBotLife(file, null);
+	}
+
+	/**
+	 * Same as above, storing every brain at the given precision unless it is null
+	 */
+	public static BotLife loadBotLife(final File file, final Precision precision) throws IOException {
+		final String name = file.getName().toLowerCase();
+		if (name.endsWith(".bot")) {
+			System.out.println("Loading bots from " + file);
+			return StateSerializer.deserializeBotLife(StateSerializer.loadBytesFromFile(file), precision);
+		}
+
+		final Properties properties = new Properties();
+		if (name.endsWith(".json")) {
+			properties.putAll(parseFlatJson(new String(Files.readAllBytes(Paths.get(file.getAbsolutePath())))));
+		} else {
+			try (Reader reader = new FileReader(file)) {
+				properties.load(reader);
+			}
+		}
+
+		final Configuration config = Configuration.createDefaultConfiguration();
+		applyProperties(config, properties);
+		if (precision != null) {
+			config.setBrainPrecision(precision);
+		}
+		return new BotLife(config);
+	}
+
+	/**
+	 * Set each named property using the matching Configuration setter
+	 */
+	public static void applyProperties(final Configuration config, final Properties properties) throws IOException {
+		for (final String key : properties.stringPropertyNames()) {
+			final String value = properties.getProperty(key).trim();
+			final String setterName = "set" + Character.toUpperCase(key.charAt(0)) + key.substring(1);
+
+			Method setter = null;
+			for (final Method method : Configuration.class.getMethods()) {
+				if (method.getName().equals(setterName) && method.getParameterCount() == 1) {
+					setter = method;
+				}
+			}
+			if (setter == null) {
+				throw new IOException("Unknown setting: " + key);
+			}
+
+			try {
+				final Class<?> type = setter.getParameterTypes()[0];
+				if (type == int.class) {
+					setter.invoke(config, Integer.parseInt(value));
+				} else if (type == long.class) {
+					setter.invoke(config, Long.parseLong(value));
+				} else if (type == double.class) {
+					setter.invoke(config, Double.parseDouble(value));
+				} else if (type == boolean.class) {
+					setter.invoke(config, Boolean.parseBoolean(value));
+				} else if (type.isEnum()) {
+					setter.invoke(config, enumValue(type, value));
+				} else {
+					setter.invoke(config, value);
+				}
+			} catch (ReflectiveOperationException | IllegalArgumentException e) {
+				throw new IOException("Invalid value for setting " + key + ": " + value, e);
+			}
+		}
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Object enumValue(final Class<?> type, final String value) {
+		return Enum.valueOf((Class<? extends Enum>) type, value.toUpperCase());
+	}
+
+	/**
+	 * Read a single JSON object of plain numbers, booleans and strings
+	 */
+	static Properties parseFlatJson(final String json) throws IOException {
+		final String body = json.trim();
+		if (!body.startsWith("{") || !body.endsWith("}")) {
+			throw new IOException("Settings must be a single JSON object");
+		}
+
+		final Properties properties = new Properties();
+		for (final String entry : body.substring(1, body.length() - 1).split(",")) {
+			if (entry.trim().isEmpty()) {
+				continue;
+			}
+			final int colon = entry.indexOf(':');
+			if (colon < 0) {
+				throw new IOException("Invalid JSON setting: " + entry.trim());
+			}
+			properties.setProperty(unquote(entry.substring(0, colon)), unquote(entry.substring(colon + 1)));
+		}
+		return properties;
+	}
+
+	private static String unquote(final String text) {
+		final String trimmed = text.trim();
+		if (trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+			return trimmed.substring(1, trimmed.length() - 1);
+		}
+		return trimmed;
+	}
+
+}
@@ -18,15 +18,29 @@ import java.util.List;
 import javax.swing.JFrame;
 
 import brain.BotBrain;
+import brain.InferenceVersion;
 import brain.NeuralNetwork;
+import brain.Precision;
+import life.Archipelago;
 import life.Bot;
 import life.BotLife;
 import life.Configuration;
+import life.RandomStreams;
 
 public class StateSerializer {
 
 	public static String BOT_MAGIC = "BOT BRAIN FILE";
-	public static String VERSION = "1.0";
+	public static String VERSION = "4.0";
+
+	// Files saved before brains were stored as one flat genome
+	public static String JAGGED_VERSION = "1.0";
+
+	// Files saved before each brain recorded its inference version
+	public static String FLAT_VERSION = "2.0";
+
+	// Files saved before brains could be stored as floats
+	public static String DOUBLE_VERSION = "3.0";
+	public static String ARCHIPELAGO_MAGIC = "BOT ARCHIPELAGO FILE";
 
 	public static byte[] serializeBotLife(final BotLife botLife) throws IOException {
 		
@@ -46,19 +60,13 @@ public class StateSerializer {
 
 		// Serialize each bot neural net
 		for (final Bot bot : botLife.getBots()) {
-			double[][][] layers = bot.getBrain().getNeuralNet().getLayers();
-			double[][][] biases = bot.getBrain().getNeuralNet().getBiases();
-			oos.writeObject(layers);
-			oos.writeObject(biases);
+			writeNeuralNet(oos, bot.getBrain().getNeuralNet());
 		}
 
 		
 		// Save best score and best bot brain
 		oos.writeObject(Double.valueOf(botLife.getBestScoreOfAllTime()));
-		double[][][] layers = botLife.getBestOfAllTime().getNeuralNet().getLayers();
-		double[][][] biases =  botLife.getBestOfAllTime().getNeuralNet().getBiases();
-		oos.writeObject(layers);
-		oos.writeObject(biases);
+		writeNeuralNet(oos, botLife.getBestOfAllTime().getNeuralNet());
 		
 		// Save configuration settings
 		oos.writeObject(botLife.getConfig());
@@ -69,7 +77,62 @@ public class StateSerializer {
 		return bos.toByteArray();
 	}
 
+	private static void writeNeuralNet(final ObjectOutputStream oos, final NeuralNetwork neuralNet)
+			throws IOException {
+		oos.writeObject(neuralNet.getLayerSizes());
+		if (neuralNet.getPrecision() == Precision.FLOAT) {
+			oos.writeObject(neuralNet.getFloatGenome());
+		} else {
+			oos.writeObject(neuralNet.getGenome());
+		}
+		oos.writeObject(neuralNet.getInferenceVersion());
+	}
+
+	/**
+	 * Read a brain as it was saved, converted to the given precision unless it
+	 * is null
+	 */
+	private static NeuralNetwork readNeuralNet(final ObjectInputStream ois, final String version,
+			final Precision precision) throws IOException, ClassNotFoundException {
+		final NeuralNetwork neuralNet = readNeuralNet(ois, version);
+		return (precision == null) ? neuralNet : neuralNet.toPrecision(precision);
+	}
+
+	private static NeuralNetwork readNeuralNet(final ObjectInputStream ois, final String version)
+			throws IOException, ClassNotFoundException {
+		if (JAGGED_VERSION.equals(version)) {
+			double[][][] layers = (double[][][]) ois.readObject();
+			double[][][] biases = (double[][][]) ois.readObject();
+			return new NeuralNetwork(layers, biases, InferenceVersion.LEGACY);
+		}
+
+		int[] layerSizes = (int[]) ois.readObject();
+		Object genome = ois.readObject();
+		if (FLAT_VERSION.equals(version)) {
+			return new NeuralNetwork(layerSizes, (double[]) genome, InferenceVersion.LEGACY);
+		}
+
+		InferenceVersion inferenceVersion = (InferenceVersion) ois.readObject();
+		if (genome instanceof float[]) {
+			return new NeuralNetwork(layerSizes, (float[]) genome, inferenceVersion);
+		}
+		return new NeuralNetwork(layerSizes, (double[]) genome, inferenceVersion);
+	}
+
+	private static boolean isSupportedVersion(final String version) {
+		return VERSION.equals(version) || DOUBLE_VERSION.equals(version) || FLAT_VERSION.equals(version)
+				|| JAGGED_VERSION.equals(version);
+	}
+
 	public static BotLife deserializeBotLife(byte[] botData) throws IOException {
+		return deserializeBotLife(botData, null);
+	}
+
+	/**
+	 * Load a saved population, converting every brain, and the brains bred from
+	 * them, to the given precision unless it is null
+	 */
+	public static BotLife deserializeBotLife(byte[] botData, final Precision precision) throws IOException {
 
 		final ByteArrayInputStream bis = new ByteArrayInputStream(botData);
 		ObjectInputStream ois = new ObjectInputStream(bis);
@@ -82,7 +145,7 @@ public class StateSerializer {
 			}
 
 			final String version = (String) ois.readObject();
-			if (!VERSION.equals(version)) {
+			if (!isSupportedVersion(version)) {
 				throw new IOException("Invalid file type, version mismatch");
 			}
 
@@ -96,22 +159,15 @@ public class StateSerializer {
 			// Load bot brains
 			final Long numBots = (Long) ois.readObject();
 			System.out.println("Loading " + numBots + " bot brains");
-			final List<Bot> bots = new ArrayList<>();
+			final List<BotBrain> botBrains = new ArrayList<>();
 			// Serialize each bot neural net
 			for (int i = 0; i < numBots; i++) {
-				double[][][] layers = (double[][][]) ois.readObject();
-				double[][][] biases = (double[][][]) ois.readObject();
-				NeuralNetwork neuralNet = new NeuralNetwork(layers, biases);
-				BotBrain botBrain = new BotBrain(neuralNet);
-				bots.add(new Bot(botBrain));
+				botBrains.add(new BotBrain(readNeuralNet(ois, version, precision)));
 			}
 			
 			// Load best of all time
 			final Double bestScoreOfAllTime = (Double) ois.readObject();
-			double[][][] layers = (double[][][]) ois.readObject();
-			double[][][] biases = (double[][][]) ois.readObject();
-			NeuralNetwork neuralNet = new NeuralNetwork(layers, biases);
-			BotBrain bestBotBrain = new BotBrain(neuralNet);
+			BotBrain bestBotBrain = new BotBrain(readNeuralNet(ois, version, precision));
 
 			// Attempt to load the config (not all save files have this)
 			Configuration config;
@@ -120,11 +176,27 @@ public class StateSerializer {
 			} catch (Exception e) {
 				config = Configuration.createDefaultConfiguration();
 			}
+
+			// Older files hold brains that only ever saw their first input, new
+			// random bots must match them
+			if (JAGGED_VERSION.equals(version) || FLAT_VERSION.equals(version)) {
+				config.setInferenceVersion(InferenceVersion.LEGACY);
+			}
+			if (precision != null) {
+				config.setBrainPrecision(precision);
+			}
 			
+			// Give bots the same random streams they had when the generation began
+			final List<Bot> bots = new ArrayList<>();
+			for (final BotBrain botBrain : botBrains) {
+				bots.add(new Bot(botBrain, RandomStreams.forBot(config, generationNumber, bots.size())));
+			}
+
 			final BotLife botLife = new BotLife(config, bots, numGreenBalls.intValue(),  numRedBalls.intValue());
 			botLife.setBestOfAllTime(bestBotBrain);
 			botLife.setBestScoreOfAllTime(bestScoreOfAllTime);
 			botLife.setGenerationNumber(generationNumber);
+			botLife.resetBalls();
 			
 			return botLife;
 
@@ -133,6 +205,110 @@ public class StateSerializer {
 		}
 	}
 
+	public static byte[] serializeArchipelago(final Archipelago archipelago) throws IOException {
+
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		final ObjectOutputStream oos = new ObjectOutputStream(bos);
+
+		oos.writeObject(ARCHIPELAGO_MAGIC);
+		oos.writeObject(VERSION);
+
+		// Save configuration settings shared by all islands
+		oos.writeObject(archipelago.getConfig());
+
+		// Save each island as it would be saved alone
+		oos.writeObject(Long.valueOf(archipelago.getIslands().size()));
+		for (final BotLife island : archipelago.getIslands()) {
+			oos.writeObject(serializeBotLife(island));
+		}
+
+		// Save hall of fame
+		oos.writeObject(Long.valueOf(archipelago.getHallOfFame().size()));
+		for (final Archipelago.Champion champion : archipelago.getHallOfFame()) {
+			oos.writeObject(Double.valueOf(champion.getFitness()));
+			oos.writeObject(Integer.valueOf(champion.getIsland()));
+			oos.writeObject(Long.valueOf(champion.getGeneration()));
+			writeNeuralNet(oos, champion.getBrain().getNeuralNet());
+		}
+
+		oos.flush();
+		bos.flush();
+
+		return bos.toByteArray();
+	}
+
+	public static Archipelago deserializeArchipelago(byte[] archipelagoData) throws IOException {
+		return deserializeArchipelago(archipelagoData, null);
+	}
+
+	/**
+	 * Load saved islands, converting every brain, and the brains bred from them,
+	 * to the given precision unless it is null
+	 */
+	public static Archipelago deserializeArchipelago(byte[] archipelagoData, final Precision precision)
+			throws IOException {
+
+		final ByteArrayInputStream bis = new ByteArrayInputStream(archipelagoData);
+		ObjectInputStream ois = new ObjectInputStream(bis);
+
+		try {
+
+			final String magic = (String) ois.readObject();
+			if (!ARCHIPELAGO_MAGIC.equals(magic)) {
+				throw new IOException("Invalid file type, magic not found");
+			}
+
+			final String version = (String) ois.readObject();
+			if (!isSupportedVersion(version)) {
+				throw new IOException("Invalid file type, version mismatch");
+			}
+
+			final Configuration config = (Configuration) ois.readObject();
+			if (JAGGED_VERSION.equals(version) || FLAT_VERSION.equals(version)) {
+				config.setInferenceVersion(InferenceVersion.LEGACY);
+			}
+			if (precision != null) {
+				config.setBrainPrecision(precision);
+			}
+
+			// Load islands
+			final Long numIslands = (Long) ois.readObject();
+			System.out.println("Loading " + numIslands + " islands");
+			final List<BotLife> islands = new ArrayList<>();
+			for (int i = 0; i < numIslands; i++) {
+				islands.add(deserializeBotLife((byte[]) ois.readObject(), precision));
+			}
+
+			// Load hall of fame
+			final Long numChampions = (Long) ois.readObject();
+			final List<Archipelago.Champion> hallOfFame = new ArrayList<>();
+			for (int i = 0; i < numChampions; i++) {
+				final Double fitness = (Double) ois.readObject();
+				final Integer island = (Integer) ois.readObject();
+				final Long generation = (Long) ois.readObject();
+				final BotBrain brain = new BotBrain(readNeuralNet(ois, version, precision));
+				hallOfFame.add(new Archipelago.Champion(fitness, brain, island, generation));
+			}
+
+			return new Archipelago(config, islands, hallOfFame);
+
+		} catch (ClassNotFoundException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public static boolean saveState(final File saveFile, final Archipelago archipelago) {
+		try {
+			System.out.println("Saving islands to " + saveFile);
+			saveBytesToFile(saveFile, serializeArchipelago(archipelago));
+			return true;
+		} catch (IOException e) {
+			System.err.println("Failed to serialize islands: " + e.getMessage());
+		}
+
+		return false;
+	}
+
 	public static void saveBytesToFile(final File outputFile, byte[] data) throws FileNotFoundException, IOException {
 		try (FileOutputStream outputStream = new FileOutputStream(outputFile)) {
 			outputStream.write(data);
@@ -144,7 +320,15 @@ public class StateSerializer {
 	}
 
 	public static boolean saveState(final JFrame frame, final BotLife botLife) {
-		
+		final File saveFile = chooseSaveFile(frame);
+		return (saveFile != null) && saveState(saveFile, botLife);
+	}
+
+	/**
+	 * Ask where to save, returning null if canceled
+	 */
+	public static File chooseSaveFile(final JFrame frame) {
+
 		try {
 			FileDialog fileDialog = new FileDialog(frame, "Choose Save Location", FileDialog.SAVE);
 			(new File("./saves")).mkdirs();
@@ -156,15 +340,15 @@ public class StateSerializer {
 			final String fileName = fileDialog.getFile();
 			if (fileName == null) {
 				System.out.println("File selection canceled");
-				return false;
+				return null;
 			} else {
-				return saveState(new File(fileDialog.getDirectory(), fileName), botLife);
+				return new File(fileDialog.getDirectory(), fileName);
 			}
 		} catch (IOException e) {
 			System.err.println("Failed to deserialize bots: " + e.getMessage());
 		}
 
-		return false;
+		return null;
 	}
 
 	public static boolean saveState(final File saveFile, final BotLife botLife) {
@@ -0,0 +1,67 @@
+package life;
+
+import java.lang.management.ManagementFactory;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Checks that time steps allocate nothing once warmed up, for the classic and
+ * the columnar engine. Time steps are run on this thread and kept away from
+ * generation ends and ball resets, which are allowed to allocate. Exits with
+ * status 1 if any bytes were allocated.
+ *
+ * Usage: java -cp bin life.AllocationCheck
+ */
+public class AllocationCheck {
+
+	private static final int WARM_UP_STEPS = 20_000;
+	private static final int CHECKED_STEPS = 5_000;
+
+	public static void main(String args[]) {
+		final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if (!threads.isThreadAllocatedMemorySupported()) {
+			System.out.println("Allocated bytes can't be measured on this JVM, nothing checked");
+			return;
+		}
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		int failures = 0;
+		for (final boolean columnar : new boolean[] { false, true }) {
+			final Configuration config = Configuration.createDefaultConfiguration();
+			config.setRandomSeed(1234);
+			config.setColumnarEngine(columnar);
+			config.setTimeStepsPerGeneration(1_000_000);
+			config.setBallResetsPerGeneration(1);
+
+			final BotLife botLife = new BotLife(config);
+			for (int i = 0; i < WARM_UP_STEPS; i++) {
+				botLife.doTimeStep(true);
+			}
+
+			// What measuring costs by itself, taken off below
+			final long thread = Thread.currentThread().getId();
+			final long measured = threads.getThreadAllocatedBytes(thread);
+			final long overhead = threads.getThreadAllocatedBytes(thread) - measured;
+
+			final long before = threads.getThreadAllocatedBytes(thread);
+			for (int i = 0; i < CHECKED_STEPS; i++) {
+				botLife.doTimeStep(true);
+			}
+			final long allocated = threads.getThreadAllocatedBytes(thread) - before - overhead;
+
+			final String engine = columnar ? "columnar" : "classic";
+			if (allocated > 0) {
+				System.out.println("FAILED: " + engine + " engine allocated " + allocated + " bytes in "
+						+ CHECKED_STEPS + " time steps");
+				failures++;
+			} else {
+				System.out.println(engine + " engine allocated nothing in " + CHECKED_STEPS + " time steps");
+			}
+		}
+
+		if (failures > 0) {
+			System.exit(1);
+		}
+	}
+
+}
@@ -0,0 +1,258 @@
+package life;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import brain.BotBrain;
+
+/**
+ * Island model of evolution: several independent BotLife populations evolve
+ * side by side, each on its own thread, and every few generations the fittest
+ * bots of each island migrate to its neighbors. Keeps all cores busy and keeps
+ * the populations from all converging on the same strategy.
+ */
+public class Archipelago {
+
+	/**
+	 * One of the fittest bots ever seen on any island
+	 */
+	public static class Champion {
+
+		private final double fitness;
+		private final BotBrain brain;
+		private final int island;
+		private final long generation;
+
+		public Champion(double fitness, final BotBrain brain, int island, long generation) {
+			this.fitness = fitness;
+			this.brain = brain;
+			this.island = island;
+			this.generation = generation;
+		}
+
+		public double getFitness() {
+			return fitness;
+		}
+
+		public BotBrain getBrain() {
+			return brain;
+		}
+
+		public int getIsland() {
+			return island;
+		}
+
+		public long getGeneration() {
+			return generation;
+		}
+	}
+
+	private final Configuration config;
+	private final List<BotLife> islands = new ArrayList<>();
+
+	// Fittest bots across all islands, fittest first
+	private final List<Champion> hallOfFame = new ArrayList<>();
+
+	private final ExecutorService executor;
+
+	public Archipelago(final Configuration config) {
+		validate(config);
+		this.config = config;
+		for (int i = 0; i < config.getNumIslands(); i++) {
+			final Configuration islandConfig = config.copy();
+			islandConfig.setRandomSeed(RandomStreams.create(config.getRandomSeed(), i).nextLong());
+			this.islands.add(new BotLife(islandConfig));
+		}
+		this.executor = createExecutor(this.islands.size());
+	}
+
+	public Archipelago(final Configuration config, final List<BotLife> islands, final List<Champion> hallOfFame) {
+		validate(config);
+		this.config = config;
+		this.islands.addAll(islands);
+		this.hallOfFame.addAll(hallOfFame);
+		this.executor = createExecutor(this.islands.size());
+	}
+
+	// Settings an island model cannot run with
+	private static void validate(final Configuration config) {
+		if (config.getNumIslands() < 1) {
+			throw new RuntimeException("numIslands must be at least 1: " + config.getNumIslands());
+		}
+		if (config.getMigrationInterval() < 1) {
+			throw new RuntimeException("migrationInterval must be at least 1: " + config.getMigrationInterval());
+		}
+		if (config.getMigrantsPerIsland() < 0) {
+			throw new RuntimeException("migrantsPerIsland must not be negative: " + config.getMigrantsPerIsland());
+		}
+		if (config.getHallOfFameSize() < 0) {
+			throw new RuntimeException("hallOfFameSize must not be negative: " + config.getHallOfFameSize());
+		}
+	}
+
+	private static ExecutorService createExecutor(int numIslands) {
+		return Executors.newFixedThreadPool(Math.max(1, numIslands), runnable -> {
+			final Thread thread = new Thread(runnable, "island");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Evolve every island for the migration interval, each on its own thread,
+	 * then migrate bots between them
+	 *
+	 * @return stats of the last generation of each island
+	 */
+	public List<String> doEpoch() throws InterruptedException {
+		return doEpoch(config.getMigrationInterval());
+	}
+
+	/**
+	 * Evolve every island for the given number of generations, for example fewer
+	 * than the migration interval to finish a run, then migrate bots between them
+	 *
+	 * @return stats of the last generation of each island
+	 */
+	public List<String> doEpoch(int generations) throws InterruptedException {
+
+		final List<Callable<String>> tasks = new ArrayList<>();
+		for (final BotLife island : this.islands) {
+			tasks.add(() -> {
+				String stats = "";
+				for (int i = 0; i < generations; i++) {
+					stats = doGeneration(island);
+				}
+				return stats;
+			});
+		}
+
+		final List<String> stats = new ArrayList<>();
+		try {
+			for (final Future<String> result : this.executor.invokeAll(tasks)) {
+				stats.add(result.get());
+			}
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+
+		// Islands are paused, so the rest happens in a fixed order
+		updateHallOfFame();
+		migrate();
+
+		return stats;
+	}
+
+	/**
+	 * Run an island through the remainder of its current generation
+	 */
+	private static String doGeneration(final BotLife island) {
+		final long generation = island.getGenerationNumber();
+		while (island.getGenerationNumber() == generation) {
+			island.doTimeStep(true);
+		}
+		return String.format("Generation #%d highest fitness: %.2f%%, average fitness: %.2f%%", generation,
+				100.0 * island.getBestBotFitness(), 100.0 * island.getAverageBotFitness());
+	}
+
+	private void updateHallOfFame() {
+		for (int i = 0; i < this.islands.size(); i++) {
+			final BotLife island = this.islands.get(i);
+			for (final Bot leader : island.getLastGenerationLeaders()) {
+				// Long lived bots keep only their best showing. Each generation wraps its
+				// survivors in new brains, so compare the networks, gene by gene as a
+				// loaded hall of fame holds copies.
+				boolean alreadyFamous = false;
+				for (int j = 0; j < this.hallOfFame.size(); j++) {
+					if (this.hallOfFame.get(j).getBrain().getNeuralNet().equals(leader.getBrain().getNeuralNet())) {
+						alreadyFamous = true;
+						if (leader.getFitness() > this.hallOfFame.get(j).getFitness()) {
+							this.hallOfFame.set(j, new Champion(leader.getFitness(), leader.getBrain(), i,
+									island.getGenerationNumber() - 1));
+						}
+					}
+				}
+				if (!alreadyFamous) {
+					this.hallOfFame.add(
+							new Champion(leader.getFitness(), leader.getBrain(), i, island.getGenerationNumber() - 1));
+				}
+			}
+		}
+
+		// Stable sort keeps earlier champions ahead on equal fitness
+		Collections.sort(this.hallOfFame, (a, b) -> Double.compare(b.getFitness(), a.getFitness()));
+		while (this.hallOfFame.size() > config.getHallOfFameSize()) {
+			this.hallOfFame.remove(this.hallOfFame.size() - 1);
+		}
+	}
+
+	/**
+	 * Send the fittest bots of each island to its neighbors. An island takes in
+	 * at most as many bots as it culls each generation, so its own fittest always
+	 * stay; when more are sent, each neighbor's fittest come first.
+	 */
+	private void migrate() {
+		final int numIslands = this.islands.size();
+
+		// Collect all emigrants before any island receives immigrants
+		final List<List<BotBrain>> emigrants = new ArrayList<>();
+		for (final BotLife island : this.islands) {
+			final List<BotBrain> brains = new ArrayList<>();
+			for (final Bot leader : island.getLastGenerationLeaders()) {
+				if (brains.size() < config.getMigrantsPerIsland()) {
+					brains.add(leader.getBrain());
+				}
+			}
+			emigrants.add(brains);
+		}
+
+		for (int destination = 0; destination < numIslands; destination++) {
+			final List<Integer> sources = new ArrayList<>();
+			if (config.getIslandTopology() == IslandTopology.FULLY_CONNECTED) {
+				for (int source = 0; source < numIslands; source++) {
+					if (source != destination) {
+						sources.add(source);
+					}
+				}
+			} else if (numIslands > 1) {
+				sources.add((destination + numIslands - 1) % numIslands);
+			}
+
+			final BotLife island = this.islands.get(destination);
+			final Configuration islandConfig = island.getConfig();
+			final int room = (int) (islandConfig.getFractionThatDie() * islandConfig.getGenerationSize());
+			final List<BotBrain> immigrants = new ArrayList<>();
+			for (int rank = 0; rank < config.getMigrantsPerIsland(); rank++) {
+				for (final int source : sources) {
+					if (rank < emigrants.get(source).size() && immigrants.size() < room) {
+						immigrants.add(emigrants.get(source).get(rank));
+					}
+				}
+			}
+			island.replaceWeakestBots(immigrants);
+		}
+	}
+
+	public void shutdown() {
+		this.executor.shutdown();
+	}
+
+	public List<BotLife> getIslands() {
+		return Collections.unmodifiableList(islands);
+	}
+
+	public List<Champion> getHallOfFame() {
+		return Collections.unmodifiableList(hallOfFame);
+	}
+
+	public Configuration getConfig() {
+		return config;
+	}
+
+}
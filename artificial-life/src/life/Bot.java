@@ -1,11 +1,16 @@
 package life;
 
 import java.awt.Color;
-import java.util.UUID;
+import java.util.SplittableRandom;
 
+import arena.Ball;
 import arena.Point;
+import arena.Trig;
+import brain.Activation;
 import brain.BotBrain;
-import brain.NeuralNetwork;
+import brain.GenomePool;
+import brain.InferenceVersion;
+import brain.Precision;
 
 public class Bot implements Comparable<Bot> {
 
@@ -25,14 +30,35 @@ public class Bot implements Comparable<Bot> {
 	// Neural network
 	final BotBrain brain;
 
+	// Number of inputs fed to the neural network each time step
+	static final int NUM_INPUTS = 22;
+
+	// Number of outputs read from the neural network each time step
+	static final int NUM_OUTPUTS = 4;
+	private final double[] inputs = new double[NUM_INPUTS];
+
+	// Outputs of the neural network and room for its hidden layers
+	private final double[] results;
+	private final double[] scratch;
+
 	// Spatial Position and Orientation
 	private double xPos;
 	private double yPos;
 	private double orientation = 45; // degrees (to test)
 
+	// Unit vector the body points along, follows the orientation, and the trig
+	// it was worked out with
+	private double headingX;
+	private double headingY;
+	private Trig headingTrig;
+
+	// Size of the body and head as fraction of the display
+	static final double SIZE = 0.08; // 8% of display
+	static final double HEAD_SIZE = SIZE / 3.0;
+
 	// Time
 	volatile long timeCount = 0;
-	private static long memory = 100; // 100 time steps
+	static long memory = 100; // 100 time steps
 
 	// Vision
 	double extendedLength = 1;
@@ -58,28 +84,57 @@ public class Bot implements Comparable<Bot> {
 	// Used to draw line of sight with right color
 	private volatile Color intersectedBallColor = null;
 
+	// Stream for this bot's placement and sensory noise
+	final SplittableRandom random;
+
 	// To prevent collisions
-	final UUID botId = UUID.randomUUID();
+	final long botId;
 
 	public Bot(final int brainSize) {
-		this.brain = new BotBrain(brainSize);
-		this.brain.randomize(); // Set random weights and biases
+		this(brainSize, new SplittableRandom());
+	}
 
-		this.xPos = Math.random(); // Middle of arena
-		this.yPos = Math.random(); // Middle of arena
-		this.orientation = Math.random() * 360;
+	public Bot(final int brainSize, final SplittableRandom random) {
+		this(brainSize, InferenceVersion.FULL, Precision.DOUBLE, random);
+	}
+
+	public Bot(final int brainSize, final InferenceVersion inferenceVersion, final Precision precision,
+			final SplittableRandom random) {
+		this(new BotBrain(brainSize, inferenceVersion, precision), random);
+		this.brain.randomize(random); // Set random weights and biases
+	}
+
+	/**
+	 * Same as above, with a brain filled from the given pool of genomes
+	 */
+	public Bot(final int brainSize, final InferenceVersion inferenceVersion, final Precision precision,
+			final SplittableRandom random, final GenomePool pool) {
+		this(new BotBrain(brainSize, inferenceVersion, precision, pool), random);
+		this.brain.randomize(random); // Set random weights and biases
 	}
 
 	public Bot(BotBrain brain) {
+		this(brain, new SplittableRandom());
+	}
+
+	public Bot(BotBrain brain, final SplittableRandom random) {
 		this.brain = brain;
+		this.results = new double[brain.getNeuralNet().getNumOutputs()];
+		this.scratch = new double[brain.getNeuralNet().getScratchSize()];
+		this.random = random;
+		this.botId = random.nextLong();
 
-		this.xPos = Math.random(); // Middle of arena
-		this.yPos = Math.random(); // Middle of arena
-		this.orientation = Math.random() * 360;
+		this.xPos = random.nextDouble(); // Middle of arena
+		this.yPos = random.nextDouble(); // Middle of arena
+		this.orientation = random.nextDouble() * 360;
+
+		// Worked out again with the configured trig before the bot first steps
+		updateHeading(Trig.EXACT);
 	}
 
 	public void processInputs(final Color color, double distanceFromObject, double angleDifference, double lateralSpeed,
-			double closingSpeed, double closestBallDistance, double closestBallRelativeAngle, double closestBallColor) {
+			double closingSpeed, double closestBallDistance, double closestBallRelativeAngle, double closestBallColor,
+			final Activation activation) {
 
 		// Advance the clock
 		timeCount++;
@@ -100,75 +155,150 @@ public class Bot implements Comparable<Bot> {
 			nowSeeing = -1.0;
 		}
 
-		double noise1 = Math.random();
-		double noise2 = Math.random();
-
-		double timeInput = timeSinceLastDetection > memory ? 1.0 : (timeSinceLastDetection / memory);
+		double noise1 = random.nextDouble();
+		double noise2 = random.nextDouble();
 
 		// Inputs for the neural network
-		double[] inputs = new double[] { nowSeeing, timeInput, distanceFromObject, angleDifference, lateralSpeed,
-				closingSpeed, this.lastSeenColor, this.lookAngleOfLastDetection, this.lastAngleDifference,
-				this.scanAngle, this.turnRate, this.speed, this.extendedLength, (this.orientation / 180.0) - 1.0, this.getxPos(),
-				this.getyPos(), this.stuck, closestBallDistance, closestBallRelativeAngle, closestBallColor, noise1, noise2 };
-
-		double[] results = this.brain.processInputs(inputs);
-
-		this.scanAngle = NeuralNetwork.tanh(results[0]); // Adjust to -1 to 1
-		this.turnRate = NeuralNetwork.tanh(results[1]); // Adjust to -1 to 1
-		this.speed = NeuralNetwork.tanh(results[2]); // Adjust to -1 to 1
-		this.extendedLength = NeuralNetwork.sigmoid(results[3]); // Adjust to 0 to 1
+		writeSensedInputs(inputs, 0, nowSeeing, timeSinceLastDetection, distanceFromObject, angleDifference,
+				lateralSpeed, closingSpeed, closestBallDistance, closestBallRelativeAngle, closestBallColor, noise1,
+				noise2);
+		writeStateInputs(inputs, 0, this.lastSeenColor, this.lookAngleOfLastDetection, this.lastAngleDifference,
+				this.scanAngle, this.turnRate, this.speed, this.extendedLength, this.orientation, this.getxPos(),
+				this.getyPos(), this.stuck);
+
+		this.brain.processInputs(inputs, results, scratch);
+
+		this.scanAngle = activation.tanh(results[0]); // Adjust to -1 to 1
+		this.turnRate = activation.tanh(results[1]); // Adjust to -1 to 1
+		this.speed = activation.tanh(results[2]); // Adjust to -1 to 1
+		this.extendedLength = activation.sigmoid(results[3]); // Adjust to 0 to 1
 	}
 
-	protected void updateBotPosition(boolean wallsAreSolid, double maxTurnRate, double maxSpeed) {
+	protected void updateBotPosition(boolean wallsAreSolid, double maxTurnRate, double maxSpeed, final Trig trig) {
 		
 		// Turn Bot
-		this.orientation += this.getTurnRate(maxTurnRate);
-		if (this.orientation < 0)
-			this.orientation += 360;
-		if (this.orientation > 360)
-			this.orientation -= 360;
+		final double previousOrientation = this.orientation;
+		this.orientation = turn(this.orientation, this.getTurnRate(maxTurnRate));
+		if (this.orientation != previousOrientation) {
+			updateHeading(trig);
+		}
 
 		// Move Bot
-		this.xPos += this.getSpeed(maxSpeed) * Math.cos(Math.toRadians(this.orientation - 90.0));
-		this.yPos += this.getSpeed(maxSpeed) * Math.sin(Math.toRadians(this.orientation - 90.0));
-
-		this.stuck = 0.0;
-		
-		if (wallsAreSolid) {
-			// Get Stuck against wall
-			if (this.xPos < 0) {
-				this.xPos = 0;
-				this.stuck = 1.0;
-			}
-			if (this.yPos < 0) {
-				this.yPos = 0;
-				this.stuck = 1.0;
-			}
-			if (this.xPos > 1) {
-				this.xPos = 1;
-				this.stuck = 1.0;
-			}
-			if (this.yPos > 1) {
-				this.yPos = 1;
-				this.stuck = 1.0;
-			}
-		} else {
-			// Jump to other side
-			if (this.xPos < 0)
-				this.xPos += 1;
-			if (this.yPos < 0)
-				this.yPos += 1;
-			if (this.xPos > 1)
-				this.xPos -= 1;
-			if (this.yPos > 1)
-				this.yPos -= 1;
-		}
+		final double xPos = this.xPos + this.getSpeed(maxSpeed) * this.headingX;
+		final double yPos = this.yPos + this.getSpeed(maxSpeed) * this.headingY;
+		this.stuck = isStuck(xPos, yPos, wallsAreSolid);
+		this.xPos = keepInArena(xPos, wallsAreSolid);
+		this.yPos = keepInArena(yPos, wallsAreSolid);
 		
 		// TODO: Experiment on continuous motion more
 
 
 	}
 
+	/**
+	 * Write what a bot senses into the inputs of its neural network, starting at
+	 * the given offset. Every engine fills the inputs with this and
+	 * {@link #writeStateInputs}, whatever it keeps bots in
+	 */
+	static void writeSensedInputs(final double[] inputs, final int offset, double nowSeeing,
+			long timeSinceLastDetection, double distanceFromObject, double angleDifference, double lateralSpeed,
+			double closingSpeed, double closestBallDistance, double closestBallRelativeAngle, double closestBallColor,
+			double noise1, double noise2) {
+		inputs[offset] = nowSeeing;
+		inputs[offset + 1] = timeSinceLastDetection > memory ? 1.0 : (timeSinceLastDetection / memory);
+		inputs[offset + 2] = distanceFromObject;
+		inputs[offset + 3] = angleDifference;
+		inputs[offset + 4] = lateralSpeed;
+		inputs[offset + 5] = closingSpeed;
+		inputs[offset + 17] = closestBallDistance;
+		inputs[offset + 18] = closestBallRelativeAngle;
+		inputs[offset + 19] = closestBallColor;
+		inputs[offset + 20] = noise1;
+		inputs[offset + 21] = noise2;
+	}
+
+	/**
+	 * Write what a bot remembers, its last outputs and where it is into the inputs
+	 * of its neural network, starting at the given offset
+	 */
+	static void writeStateInputs(final double[] inputs, final int offset, double lastSeenColor,
+			double lookAngleOfLastDetection, double lastAngleDifference, double scanAngle, double turnRate,
+			double speed, double extendedLength, double orientation, double xPos, double yPos, double stuck) {
+		inputs[offset + 6] = lastSeenColor;
+		inputs[offset + 7] = lookAngleOfLastDetection;
+		inputs[offset + 8] = lastAngleDifference;
+		inputs[offset + 9] = scanAngle;
+		inputs[offset + 10] = turnRate;
+		inputs[offset + 11] = speed;
+		inputs[offset + 12] = extendedLength;
+		inputs[offset + 13] = (orientation / 180.0) - 1.0;
+		inputs[offset + 14] = xPos;
+		inputs[offset + 15] = yPos;
+		inputs[offset + 16] = stuck;
+	}
+
+	/**
+	 * Orientation in degrees after turning by the given degrees, kept from 0 to
+	 * 360
+	 */
+	static double turn(double orientation, double degrees) {
+		orientation += degrees;
+		if (orientation < 0)
+			orientation += 360;
+		if (orientation > 360)
+			orientation -= 360;
+		return orientation;
+	}
+
+	/**
+	 * Convert a speed output from -1 to 1 to the range (max reverse speed to max
+	 * speed)
+	 */
+	static double speedOf(double speed, double maxSpeed) {
+		if (speed > 0)
+			return speed * maxSpeed;
+		else {
+			return speed * (maxSpeed / 2.0);
+		}
+	}
+
+	/**
+	 * 1 if a bot that moved to the given position ran into a solid wall, else 0
+	 */
+	static double isStuck(double xPos, double yPos, boolean wallsAreSolid) {
+		return (wallsAreSolid && (Ball.isOutside(xPos) || Ball.isOutside(yPos))) ? 1.0 : 0.0;
+	}
+
+	/**
+	 * Position along one axis of a bot that moved there, stopped against a solid
+	 * wall or jumped to the other side
+	 */
+	static double keepInArena(double pos, boolean wallsAreSolid) {
+		if (!wallsAreSolid)
+			return Ball.wrap(pos);
+		if (pos < 0)
+			return 0;
+		if (pos > 1)
+			return 1;
+		return pos;
+	}
+
+	private void updateHeading(final Trig trig) {
+		this.headingX = trig.cosDegrees(this.orientation - 90.0);
+		this.headingY = trig.sinDegrees(this.orientation - 90.0);
+		this.headingTrig = trig;
+	}
+
+	/**
+	 * Work out the heading again if it was worked out with other trig than
+	 * given, so it is the same whichever engine steps the bot
+	 */
+	void useTrig(final Trig trig) {
+		if (trig != this.headingTrig) {
+			updateHeading(trig);
+		}
+	}
+
 	public double getScanAngle(double maxScanRange) {
 		// Convert -1 to 1 to the range (-30 to +30)
 		return this.scanAngle * (maxScanRange / 2.0);
@@ -180,12 +310,7 @@ public class Bot implements Comparable<Bot> {
 	}
 
 	public double getSpeed(double maxSpeed) {
-		// Convert -1 to 1 to the range (max reverse speed to max speed)
-		if (this.speed > 0)
-			return this.speed * maxSpeed;
-		else {
-			return this.speed * (maxSpeed / 2.0);
-		}
+		return speedOf(this.speed, maxSpeed);
 	}
 
 	public double getxPos() {
@@ -212,16 +337,25 @@ public class Bot implements Comparable<Bot> {
 		return orientation;
 	}
 
-	public void setOrientation(double orientation) {
+	public void setOrientation(double orientation, final Trig trig) {
 		this.orientation = orientation;
+		updateHeading(trig);
+	}
+
+	public double getHeadingX() {
+		return headingX;
+	}
+
+	public double getHeadingY() {
+		return headingY;
 	}
 
 	public double getSize() {
-		return 0.08; // 8% of display
+		return SIZE;
 	}
 
 	public double getHeadSize() {
-		return getSize() / 3.0;
+		return HEAD_SIZE;
 	}
 
 	public double getScanDistance(double maxScanDistance) {
@@ -238,11 +372,9 @@ public class Bot implements Comparable<Bot> {
 
 	@Override
 	public int compareTo(final Bot other) {
-		Double myFitness = Double.valueOf(this.getFitness());
-		Double otherFitness = Double.valueOf(other.getFitness());
-		int result = otherFitness.compareTo(myFitness);
+		int result = Double.compare(other.getFitness(), this.getFitness());
 		if (result == 0) {
-			return other.botId.compareTo(this.botId);
+			return Long.compare(other.botId, this.botId);
 		} else {
 			return result;
 		}
@@ -252,7 +384,7 @@ public class Bot implements Comparable<Bot> {
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + ((botId == null) ? 0 : botId.hashCode());
+		result = prime * result + Long.hashCode(botId);
 		return result;
 	}
 
@@ -265,14 +397,60 @@ public class Bot implements Comparable<Bot> {
 		if (getClass() != obj.getClass())
 			return false;
 		Bot other = (Bot) obj;
-		if (botId == null) {
-			if (other.botId != null)
-				return false;
-		} else if (!botId.equals(other.botId))
+		if (botId != other.botId)
 			return false;
 		return true;
 	}
 
+	/**
+	 * Copy the state of this bot into the given column of the world
+	 */
+	void writeToColumns(final ColumnarWorld world, int i) {
+		world.brains[i] = this.brain;
+		world.randoms[i] = this.random;
+		world.xPos[i] = this.xPos;
+		world.yPos[i] = this.yPos;
+		world.orientation[i] = this.orientation;
+		world.headingX[i] = this.headingX;
+		world.headingY[i] = this.headingY;
+		world.stuck[i] = this.stuck;
+		world.scanAngle[i] = this.scanAngle;
+		world.turnRate[i] = this.turnRate;
+		world.speed[i] = this.speed;
+		world.extendedLength[i] = this.extendedLength;
+		world.timeCount[i] = this.timeCount;
+		world.timeOfLastDetection[i] = this.timeOfLastDetection;
+		world.lookAngleOfLastDetection[i] = this.lookAngleOfLastDetection;
+		world.lastSeenColor[i] = this.lastSeenColor;
+		world.lastAngleDifference[i] = this.lastAngleDifference;
+		world.fitness[i] = this.fitness;
+		world.colorSeen[i] = ColumnarWorld.colorCode(this.intersectedBallColor);
+	}
+
+	/**
+	 * Update this bot from the given column of the world
+	 */
+	void readFromColumns(final ColumnarWorld world, int i) {
+		this.xPos = world.xPos[i];
+		this.yPos = world.yPos[i];
+		this.orientation = world.orientation[i];
+		this.headingX = world.headingX[i];
+		this.headingY = world.headingY[i];
+		this.headingTrig = world.trig;
+		this.stuck = world.stuck[i];
+		this.scanAngle = world.scanAngle[i];
+		this.turnRate = world.turnRate[i];
+		this.speed = world.speed[i];
+		this.extendedLength = world.extendedLength[i];
+		this.timeCount = world.timeCount[i];
+		this.timeOfLastDetection = world.timeOfLastDetection[i];
+		this.lookAngleOfLastDetection = world.lookAngleOfLastDetection[i];
+		this.lastSeenColor = world.lastSeenColor[i];
+		this.lastAngleDifference = world.lastAngleDifference[i];
+		this.fitness = world.fitness[i];
+		this.intersectedBallColor = ColumnarWorld.colorOf(world.colorSeen[i]);
+	}
+
 	public void setIntersectedColor(final Color intersectedBallColor) {
 		this.intersectedBallColor = intersectedBallColor;
 	}
@@ -2,14 +2,24 @@ package life;
 
 import java.awt.Color;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import arena.Ball;
+import arena.BallGrid;
+import arena.BallTape;
 import arena.Line;
+import arena.Trig;
 import brain.BotBrain;
+import brain.GenomePool;
 import brain.NeuralNetwork;
 import brain.Reproduce;
 
@@ -22,10 +32,70 @@ public class BotLife {
 	private final List<Bot> bots = new ArrayList<Bot>();
 	private final List<Ball> balls = new ArrayList<Ball>();
 
+	// Index of ball positions for sensing, rebuilt each time step
+	private final BallGrid ballGrid = new BallGrid();
+	private final ThreadLocal<int[]> ballCandidates = ThreadLocal.withInitial(() -> new int[0]);
+
+	// Slots after the line of sight that hold the relative motion of the seen ball
+	static final int LATERAL_SPEED = Line.SIGHT_SIZE;
+	static final int CLOSING_SPEED = Line.SIGHT_SIZE + 1;
+	static final int SENSING_SIZE = Line.SIGHT_SIZE + 2;
+
+	// Per thread scratch space for sensing, so time steps create no garbage
+	private final ThreadLocal<double[]> sightScratch = ThreadLocal.withInitial(() -> new double[SENSING_SIZE]);
+	private AtomicIntegerArray ballFeedings = new AtomicIntegerArray(0);
+
+	// Ball motion until the next reset when ball tapes are enabled, and the frame
+	// of it to play next
+	private volatile BallTape ballTape = null;
+	private volatile int ballTapeFrame = 0;
+
+	// Primitive columns used instead of the bots and balls when the columnar
+	// engine is enabled, loaded on first use and stored back when looked at
+	private final ColumnarWorld columnarWorld = new ColumnarWorld();
+	private boolean columnsLoaded = false;
+
+	// Random streams of the current generation, see RandomStreams
+	private SplittableRandom ballRandom;
+	private SplittableRandom breedingRandom;
+
 	// For tracking progress of evolution
 	private volatile BotBrain bestOfAllTime;
 	private volatile double bestScoreOfAllTime = -1;
 
+	// Genomes of bred networks nobody uses any more, refilled by the next
+	// generation's offspring
+	private final GenomePool genomePool = new GenomePool();
+
+	// Networks bred here that no other BotLife, hall of fame or display can hold,
+	// given back to the pool when their bot is culled. A network leaves for good
+	// once it leads a generation, since leaders are kept and shared.
+	private Set<NeuralNetwork> privateNetworks = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	// Latest picture of the world for displays, published every so often once
+	// anyone has asked for one
+	private volatile WorldSnapshot snapshot;
+	private volatile boolean snapshotsWanted = false;
+	private long lastSnapshotTime = 0;
+
+	// Where the bots have been this generation, while heat maps are enabled
+	private HeatMap heatMap = null;
+
+	// Time spent in each phase of the generation being trained, while phase
+	// timing is enabled
+	private PhaseTimer phaseTimer = null;
+
+	// Fittest bots of the last completed generation, fittest first: the five
+	// parents and as many more as are sent to other islands as migrants
+	private volatile List<Bot> lastGenerationLeaders = Collections.emptyList();
+
+	// Bots still running when generations are raced, null while all of them are
+	private List<Bot> contenders = null;
+
+	// Bot time steps that racing skipped, this generation and the last
+	private long botStepsSaved = 0;
+	private volatile long lastGenerationBotStepsSaved = 0;
+
 	// Stats
 	private volatile long timeStepNumber = 0;
 	private volatile long generationNumber = 0;
@@ -34,11 +104,12 @@ public class BotLife {
 
 	public BotLife(final Configuration config) {
 		this(config, config.getGenerationSize(), config.getNumGreenBalls(), config.getNumRedBalls());
-		this.bestOfAllTime = new BotBrain(config.getBrainSize());
+		this.bestOfAllTime = newBrain();
 	}
 
 	public BotLife(final Configuration config, List<Bot> bots, List<Ball> balls) {
 		this.config = config;
+		reseed();
 		this.bots.addAll(bots);
 		this.balls.addAll(balls);
 
@@ -55,31 +126,38 @@ public class BotLife {
 
 		this.config.setNumGreenBalls(greenCount);
 		this.config.setNumRedBalls(redCount);
-		this.bestOfAllTime = new BotBrain(config.getBrainSize());
+		this.bestOfAllTime = newBrain();
+		publishSnapshot();
 	}
 
 	public BotLife(final Configuration config, final List<Bot> bots, int numGreenBalls, int numRedBalls) {
 		this.config = config;
 		this.config.setNumGreenBalls(numGreenBalls);
 		this.config.setNumRedBalls(numRedBalls);
+		reseed();
 
 		this.bots.addAll(bots);
-		this.balls.addAll(Ball.createBalls(config.getBallSize(), config.getNumGreenBalls(), config.getNumRedBalls()));
-		this.bestOfAllTime = new BotBrain(config.getBrainSize());
+		this.balls.addAll(Ball.createBalls(config.getBallSize(), config.getNumGreenBalls(), config.getNumRedBalls(),
+				this.ballRandom));
+		this.bestOfAllTime = newBrain();
+		publishSnapshot();
 	}
 
 	public BotLife(final Configuration config, int numBots, int numGreenBalls, int numRedBalls) {
 		this.config = config;
 		this.config.setNumGreenBalls(numGreenBalls);
 		this.config.setNumRedBalls(numRedBalls);
+		reseed();
 
 		// Initialize bots
 		for (int i = 0; i < numBots; i++) {
-			this.bots.add(new Bot(config.getBrainSize()));
+			this.bots.add(newRandomBot(RandomStreams.forBot(config, this.generationNumber, i)));
 		}
 
-		this.balls.addAll(Ball.createBalls(config.getBallSize(), config.getNumGreenBalls(), config.getNumRedBalls()));
-		this.bestOfAllTime = new BotBrain(config.getBrainSize());
+		this.balls.addAll(Ball.createBalls(config.getBallSize(), config.getNumGreenBalls(), config.getNumRedBalls(),
+				this.ballRandom));
+		this.bestOfAllTime = newBrain();
+		publishSnapshot();
 	}
 
 	public void doTimeStep(boolean createGeneration) {
@@ -95,136 +173,514 @@ public class BotLife {
 			if (createGeneration) {
 				createNextGeneration();
 			} else {
+				endRace();
 				this.generationNumber++;
 				this.timeStepNumber = 0;
+				reseed();
 			}
+
+			// Heat of the new generation only
+			if (this.heatMap != null) {
+				this.heatMap.clear();
+			}
+		}
+
+		// Only time training, not displays stepping their own bots
+		final PhaseTimer timer = createGeneration ? recordingPhaseTimer() : null;
+
+		if (config.isColumnarEngine()) {
+			doColumnarTimeStep(timer);
+			raceIfRoundOver();
+			publishSnapshotIfDue();
+			return;
 		}
+		storeColumns();
 
 		// Update Position of Each Ball
-		for (final Ball ball : this.balls) {
-			ball.move(config.isSolidWalls());
+		final long start = (timer != null) ? System.nanoTime() : 0;
+		if (config.isBallTape()) {
+			final int frame = nextBallTapeFrame();
+			this.ballTape.apply(frame, this.balls);
+		} else {
+			for (final Ball ball : this.balls) {
+				ball.move(config.isSolidWalls());
+			}
+		}
+		this.ballGrid.rebuild(this.balls);
+		if (timer != null) {
+			timer.lap(Phase.BALL_MOVEMENT, start);
 		}
 
-		// Update position of each bot
-		for (final Bot bot : this.bots) {
+		// Update position of each bot, sequentially or split across cores. Balls are
+		// only read while bots sense, any feeding is tallied and applied afterwards
+		// in ball order so both paths leave the world in the same state.
+		final AtomicIntegerArray ballFeedings = clearBallFeedings();
+		final HeatMap heat = recordingHeatMap();
+		if (config.isParallelTimeStep()) {
+			steppedBots().parallelStream().forEach(bot -> doBotTimeStep(bot, ballFeedings, heat, timer));
+		} else {
+			for (final Bot bot : steppedBots()) {
+				doBotTimeStep(bot, ballFeedings, heat, timer);
+			}
+		}
 
-			// Get angle of bot and angle of vision
-			double orientation = bot.getOrientation();
+		// For making ball disappear
+		for (int i = 0; i < ballFeedings.length(); i++) {
+			for (int j = 0; j < ballFeedings.get(i); j++) {
+				this.balls.get(i).feed();
+			}
+		}
+		raceIfRoundOver();
+		publishSnapshotIfDue();
+	}
 
-			// Send bot data about closest ball (hearing)
-			double closestBallDistance = 5.0;
-			double closestBallRelativeAngle = 0;
-			double closetBallColor = 0;
+	private void publishSnapshotIfDue() {
+		if (!this.snapshotsWanted) {
+			return;
+		}
+		final long now = System.nanoTime();
+		if (now - this.lastSnapshotTime >= 1_000_000_000L / config.getSnapshotsPerSecond()) {
+			this.lastSnapshotTime = now;
+			publishSnapshot();
+		}
+	}
 
-			// Change color to intersection of any balls.
-			Color colorSeen = Color.BLACK;
-			double distance = 1;
-			double lateralSpeed = 0.0;
-			double closingSpeed = 0.0;
-			double relativeAngle = 0.0;
-			final Line line = Line.fromBotSight(bot, config);
+	private void publishSnapshot() {
+		this.snapshot = takeSnapshot(config.getDisplayBots());
+	}
 
-			bot.setIntersectedColor(null);
-			for (final Ball ball : balls) {
+	/**
+	 * Snapshot of the world as it is now, without any brains, for example to
+	 * render. Only for the thread running the time steps.
+	 */
+	public WorldSnapshot takeSnapshot() {
+		return takeSnapshot(0);
+	}
 
-				Line lineToBall = new Line(line.getP1(), ball.getCenter());
-				double ballDistance = lineToBall.getLength();
-				if (ballDistance < closestBallDistance) {
-					closestBallDistance = ballDistance;
-					closestBallRelativeAngle = line.getAngleRadians() - Math.toRadians(bot.getOrientation());
-					if (ball.getColor() == Color.RED) {
-						closetBallColor = -1;
-					} else {
-						closetBallColor = 1;
-					}
-				}
+	/**
+	 * Take a new snapshot of the world from the bots and balls, or from the
+	 * columns when they are loaded, leaving both as they are
+	 */
+	private WorldSnapshot takeSnapshot(int numBrains) {
+		final List<Bot> stepped = steppedBots();
+		final List<BotBrain> brains = new ArrayList<>();
+		for (int i = 0; i < numBrains && i < this.bots.size(); i++) {
+			brains.add(new BotBrain(Reproduce.clone(this.bots.get(i).getBrain().getNeuralNet())));
+		}
+		final WorldSnapshot taken = new WorldSnapshot(this.generationNumber, this.timeStepNumber, stepped.size(),
+				this.balls.size(), Collections.unmodifiableList(brains), this.ballTape, this.ballTapeFrame,
+				(config.isHeatmap() && this.heatMap != null) ? this.heatMap.totals() : null);
+
+		final double scanDegrees = config.getScanDegrees();
+		final double antennaLength = config.getAntennaLength();
+		if (this.columnsLoaded) {
+			final ColumnarWorld world = this.columnarWorld;
+			for (int i = 0; i < stepped.size(); i++) {
+				taken.botX[i] = world.xPos[i];
+				taken.botY[i] = world.yPos[i];
+				taken.orientation[i] = world.orientation[i];
+				taken.scanAngle[i] = world.scanAngle[i] * (scanDegrees / 2.0);
+				taken.scanDistance[i] = world.extendedLength[i] * antennaLength;
+				taken.fitness[i] = world.fitness[i];
+				taken.sightColor[i] = ColumnarWorld.colorOf(world.colorSeen[i]);
+			}
+			for (int i = 0; i < this.balls.size(); i++) {
+				taken.ballX[i] = world.ballX[i];
+				taken.ballY[i] = world.ballY[i];
+				taken.ballXVel[i] = world.ballXVel[i];
+				taken.ballYVel[i] = world.ballYVel[i];
+				taken.ballSize[i] = world.ballSize[i];
+				taken.ballColor[i] = ColumnarWorld.colorOf(world.ballColor[i]);
+			}
+		} else {
+			for (int i = 0; i < stepped.size(); i++) {
+				final Bot bot = stepped.get(i);
+				taken.botX[i] = bot.getxPos();
+				taken.botY[i] = bot.getyPos();
+				taken.orientation[i] = bot.getOrientation();
+				taken.scanAngle[i] = bot.getScanAngle(scanDegrees);
+				taken.scanDistance[i] = bot.getScanDistance(antennaLength);
+				taken.fitness[i] = bot.getFitness();
+				taken.sightColor[i] = bot.getIntersectedBallColor();
+			}
+			for (int i = 0; i < this.balls.size(); i++) {
+				final Ball ball = this.balls.get(i);
+				taken.ballX[i] = ball.getxPos();
+				taken.ballY[i] = ball.getyPos();
+				taken.ballXVel[i] = ball.getxVel();
+				taken.ballYVel[i] = ball.getyVel();
+				taken.ballSize[i] = ball.getSize();
+				taken.ballColor[i] = ball.getColor();
+			}
+		}
+		return taken;
+	}
 
-				if (line.doesIntersect(ball)) {
+	/**
+	 * The latest snapshot of the world, taken at most snapshotsPerSecond times a
+	 * second while time steps run. Never blocks the thread running them.
+	 */
+	public WorldSnapshot getSnapshot() {
+		this.snapshotsWanted = true;
+		return this.snapshot;
+	}
 
-					// Save this with the bot so we can draw it appropriately
-					bot.setIntersectedColor(ball.getColor());
+	/**
+	 * Bots that take part in time steps, only the contenders once racing has
+	 * dropped some
+	 */
+	private List<Bot> steppedBots() {
+		return (this.contenders == null) ? this.bots : this.contenders;
+	}
 
-					// Save properties of ball to feed into neural network
-					colorSeen = ball.getColor();
+	/**
+	 * At the end of each racing round, stop running the bots that look unable to
+	 * survive the generation: those that would still fall short of the fitness of
+	 * the last survivor among the bots still racing even if they kept up the best
+	 * pace any of them has managed so far. That pace is only an estimate, not a
+	 * bound on what a bot could gain, so dropping a bot eliminates it: it keeps
+	 * the fitness it has and ranks behind every bot still racing at the end of
+	 * the generation, whatever either goes on to score (see Selection). Enough
+	 * bots always race on to fill the survivors.
+	 */
+	private void raceIfRoundOver() {
+		final int rounds = config.getRacingRounds();
+		final int timeStepsPerGeneration = config.getTimeStepsPerGeneration();
+		final int timeStepsPerRound = (rounds > 1) ? (timeStepsPerGeneration / rounds) : 0;
+		if (timeStepsPerRound == 0 || this.timeStepNumber == 0 || (this.timeStepNumber % timeStepsPerRound) != 0
+				|| this.timeStepNumber >= timeStepsPerGeneration) {
+			return;
+		}
 
-					// Express distance as from tip of nose to the ball center, as fraction of
-					// length of sight
-					distance = Line.calculateDistance(line.getP1(), ball.getCenter()) / line.getLength();
+		// Bots that survive to the next generation, at least the five parents
+		final int botsToReplace = (int) (config.getFractionThatDie() * config.getGenerationSize());
+		final int survivors = Math.max(5, this.bots.size() - botsToReplace);
+		if (steppedBots().size() <= survivors) {
+			return;
+		}
 
-					// Create line from nose to center of ball
-					relativeAngle = line.getAngleRadians() - lineToBall.getAngleRadians();
+		storeColumns();
+		final List<Bot> racing = steppedBots();
+		final double[] fitnesses = new double[racing.size()];
+		for (int i = 0; i < fitnesses.length; i++) {
+			fitnesses[i] = racing.get(i).getFitness();
+		}
+		Arrays.sort(fitnesses);
+		final double cutoff = fitnesses[fitnesses.length - survivors];
+		final double bestPace = Math.max(0.0, fitnesses[fitnesses.length - 1] / this.timeStepNumber);
+
+		final long timeStepsLeft = timeStepsPerGeneration - this.timeStepNumber;
+		final List<Bot> stillRacing = new ArrayList<>();
+		for (final Bot bot : steppedBots()) {
+			if (bot.getFitness() + (bestPace * timeStepsLeft) >= cutoff) {
+				stillRacing.add(bot);
+			}
+		}
+		this.botStepsSaved += (steppedBots().size() - stillRacing.size()) * timeStepsLeft;
+		this.contenders = stillRacing;
+	}
 
-					// Ball motion
-					double ballLateralSpeed = ball.getxVel(); // -1 going left, 1 going right
-					double ballVerticalSpeed = ball.getyVel(); // -1 going up, 1 closing
+	/**
+	 * Let every bot run again, and keep count of the steps saved by the race that
+	 * just finished
+	 */
+	private void endRace() {
+		storeColumns();
+		this.contenders = null;
+		this.lastGenerationBotStepsSaved = this.botStepsSaved;
+		this.botStepsSaved = 0;
+	}
 
-					// Bot motion
-					double maxSpeed = config.getMaxSpeed();
-					double botXSpeed = bot.getSpeed(maxSpeed) * Math.cos(Math.toRadians(bot.getOrientation() - 90.0));
-					double botYSpeed = bot.getSpeed(maxSpeed) * Math.sin(Math.toRadians(bot.getOrientation() - 90.0));
+	private void doColumnarTimeStep(final PhaseTimer timer) {
+		// Ball motion to play, if any, before loading as recording it may need the
+		// balls stored
+		final int frame = config.isBallTape() ? nextBallTapeFrame() : 0;
+		final BallTape tape = config.isBallTape() ? this.ballTape : null;
+		if (!this.columnsLoaded) {
+			this.columnarWorld.loadBots(steppedBots(), config.getTrig());
+			this.columnarWorld.loadBalls(this.balls);
+			this.columnsLoaded = true;
+		}
 
-					// Relative motion (expressed as fraction of our maximum forward speed)
-					double relXSpeed = (ballLateralSpeed + botXSpeed) / maxSpeed;
-					double relYSpeed = (ballVerticalSpeed + botYSpeed) / maxSpeed;
+		final AtomicIntegerArray ballFeedings = clearBallFeedings();
+		this.columnarWorld.doTimeStep(config, ballFeedings, tape, frame, recordingHeatMap(), timer);
 
-					double ballVelocity = Math.sqrt(relXSpeed * relXSpeed + relYSpeed * relYSpeed);
+		// For making ball disappear
+		for (int i = 0; i < ballFeedings.length(); i++) {
+			if (ballFeedings.get(i) > 0) {
+				this.columnarWorld.feedBall(this.balls, i, ballFeedings.get(i));
+			}
+		}
+	}
 
-					// Calculate direction of ball in degrees (orientated with arena view)
-					double ballAngle = Math.toDegrees(Math.atan2(ballVerticalSpeed, ballLateralSpeed));
+	/**
+	 * Frame of the ball tape for this time step, recording the tape first if it
+	 * is missing or used up
+	 */
+	private int nextBallTapeFrame() {
+		final int framesPerReset = config.getTimeStepsPerGeneration() / config.getBallResetsPerGeneration();
+		if (this.ballTape == null || this.ballTape.getNumBalls() != this.balls.size()) {
+			storeColumns();
+			this.ballTape = BallTape.record(this.balls, framesPerReset, config.isSolidWalls());
+			this.ballTapeFrame = 0;
+		} else if (this.ballTapeFrame >= this.ballTape.getNumFrames()) {
+			this.ballTape = this.ballTape.next(framesPerReset);
+			this.ballTapeFrame = 0;
+		}
+		return this.ballTapeFrame++;
+	}
 
-					// We need to adjust the above values to account for our orientation and angle
-					// of sight
-					double scanOffsetDegrees = orientation + bot.getScanAngle(config.getScanDegrees());
+	private AtomicIntegerArray clearBallFeedings() {
+		if (this.ballFeedings.length() != this.balls.size()) {
+			this.ballFeedings = new AtomicIntegerArray(this.balls.size());
+		} else {
+			for (int i = 0; i < this.ballFeedings.length(); i++) {
+				this.ballFeedings.set(i, 0);
+			}
+		}
+		return this.ballFeedings;
+	}
 
-					// Compensate for our own rotatation to compute relative angle of motion
-					double adjustedBallAngle = ballAngle - scanOffsetDegrees;
+	/**
+	 * Bring the bot and ball objects up to date with the columnar engine, after
+	 * which they may be freely read or replaced
+	 */
+	private void storeColumns() {
+		if (this.columnsLoaded) {
+			this.columnarWorld.storeBots(steppedBots());
+			this.columnarWorld.storeBalls(this.balls);
+			this.columnsLoaded = false;
+		}
+	}
 
-					// Apply adjusted angle and velocity to compute relative lateral and closing
-					// velocity
-					lateralSpeed = ballVelocity * Math.cos(Math.toRadians(adjustedBallAngle));
-					closingSpeed = ballVelocity * Math.sin(Math.toRadians(adjustedBallAngle));
+	/**
+	 * Work out how a seen ball moves relative to a bot, across and along the line
+	 * of sight as fractions of the bot's maximum speed, and keep them in the sight
+	 * after the line. Both engines sense balls with this
+	 */
+	static void senseMotion(double ballLateralSpeed, double ballVerticalSpeed, double botSpeed, double headingX,
+			double headingY, double maxSpeed, double scanOffsetDegrees, final Trig trig, final double[] sight) {
+
+		// Bot motion
+		double botXSpeed = botSpeed * headingX;
+		double botYSpeed = botSpeed * headingY;
+
+		// Relative motion (expressed as fraction of our maximum forward speed)
+		double relXSpeed = (ballLateralSpeed + botXSpeed) / maxSpeed;
+		double relYSpeed = (ballVerticalSpeed + botYSpeed) / maxSpeed;
+
+		double ballVelocity = Math.sqrt(relXSpeed * relXSpeed + relYSpeed * relYSpeed);
+
+		if (trig == Trig.EXACT) {
+			// Calculate direction of ball in degrees (orientated with arena view)
+			double ballAngle = Math.toDegrees(Math.atan2(ballVerticalSpeed, ballLateralSpeed));
+
+			// Compensate for our own rotatation to compute relative angle of motion
+			double adjustedBallAngle = ballAngle - scanOffsetDegrees;
+
+			// Apply adjusted angle and velocity to compute relative lateral and closing
+			// velocity
+			sight[LATERAL_SPEED] = ballVelocity * Math.cos(Math.toRadians(adjustedBallAngle));
+			sight[CLOSING_SPEED] = ballVelocity * Math.sin(Math.toRadians(adjustedBallAngle));
+		} else {
+			// Same as above, projecting the direction of the ball onto our line of sight
+			// turned a quarter to the left
+			sight[LATERAL_SPEED] = ballVelocity * Line.lateralComponent(ballLateralSpeed, ballVerticalSpeed, sight);
+			sight[CLOSING_SPEED] = ballVelocity * Line.closingComponent(ballLateralSpeed, ballVerticalSpeed, sight);
+		}
+	}
 
-					// For making ball disappear
-					ball.feed();
-				}
+	private void doBotTimeStep(final Bot bot, final AtomicIntegerArray ballFeedings, final HeatMap heat,
+			final PhaseTimer timer) {
+		long time = (timer != null) ? System.nanoTime() : 0;
+
+		// Get angle of bot and angle of vision
+		final Trig trig = config.getTrig();
+		bot.useTrig(trig);
+		double orientation = bot.getOrientation();
+
+		// Send bot data about closest ball (hearing)
+		double closestBallDistance = 5.0;
+		double closestBallRelativeAngle = 0;
+		double closetBallColor = 0;
+
+		// Change color to intersection of any balls.
+		Color colorSeen = Color.BLACK;
+		double distance = 1;
+		double lateralSpeed = 0.0;
+		double closingSpeed = 0.0;
+		double relativeAngle = 0.0;
+		final double[] line = sightScratch.get();
+		Line.fromBotSight(bot.getxPos(), bot.getyPos(), bot.getSize(), bot.getHeadSize(), bot.getHeadingX(),
+				bot.getHeadingY(), orientation, bot.getScanAngle(config.getScanDegrees()),
+				bot.getScanDistance(config.getAntennaLength()), trig, line);
+
+		bot.setIntersectedColor(null);
+
+		// Closest ball to our nose
+		final int closestBall = ballGrid.findClosest(line[Line.X1], line[Line.Y1], closestBallDistance);
+		if (closestBall >= 0) {
+			final Ball ball = balls.get(closestBall);
+			closestBallDistance = Line.calculateDistance(line[Line.X1], line[Line.Y1], ball.getCenterX(),
+					ball.getCenterY());
+			closestBallRelativeAngle = line[Line.ANGLE] - Math.toRadians(bot.getOrientation());
+			if (ball.getColor() == Color.RED) {
+				closetBallColor = -1;
+			} else {
+				closetBallColor = 1;
 			}
+		}
 
-			// Process the state using the bots neural network to get bot's outputs
-			bot.processInputs(colorSeen, distance, relativeAngle, lateralSpeed, closingSpeed, closestBallDistance,
-					closestBallRelativeAngle, closetBallColor);
+		// Only balls near the line of sight can intersect it
+		int[] candidates = ballCandidates.get();
+		if (candidates.length < balls.size()) {
+			candidates = new int[balls.size()];
+			ballCandidates.set(candidates);
+		}
+		final int numCandidates = ballGrid.findCandidates(line[Line.X1], line[Line.Y1], line[Line.X2],
+				line[Line.Y2], candidates);
+		Ball seenBall = null;
+		for (int c = 0; c < numCandidates; c++) {
+			final int i = candidates[c];
+			final Ball ball = balls.get(i);
 
-			// Update bot's position and orientation
-			bot.updateBotPosition(config.isSolidWalls(), config.getMaxTurnRate(), config.getMaxSpeed());
+			if (Line.doesIntersect(line, ball.getCenterX(), ball.getCenterY(), ball.getSize() / 2.0)) {
 
-			// Update bot's fitness based on ball contact
-			if (colorSeen == Color.RED) {
-				bot.fitness -= config.getRedBallDetriment();
-			} else if (colorSeen == Color.GREEN) {
-				bot.fitness += config.getGreenBallBenefit();
+				// The last ball crossed is the one we see
+				seenBall = ball;
+
+				// Ball is fed once all bots have finished sensing
+				ballFeedings.incrementAndGet(i);
 			}
+		}
+
+		if (seenBall != null) {
+
+			// Save this with the bot so we can draw it appropriately
+			bot.setIntersectedColor(seenBall.getColor());
+
+			// Save properties of ball to feed into neural network
+			colorSeen = seenBall.getColor();
+
+			// Express distance as from tip of nose to the ball center, as fraction of
+			// length of sight
+			distance = Line.calculateDistance(line[Line.X1], line[Line.Y1], seenBall.getCenterX(),
+					seenBall.getCenterY()) / line[Line.LENGTH];
+
+			// Angle of line from nose to center of ball
+			relativeAngle = line[Line.ANGLE]
+					- trig.atan2(seenBall.getCenterY() - line[Line.Y1], seenBall.getCenterX() - line[Line.X1]);
+
+			// Relative motion of the ball across and along our line of sight
+			senseMotion(seenBall.getxVel(), seenBall.getyVel(), bot.getSpeed(config.getMaxSpeed()),
+					bot.getHeadingX(), bot.getHeadingY(), config.getMaxSpeed(),
+					orientation + bot.getScanAngle(config.getScanDegrees()), trig, line);
+			lateralSpeed = line[LATERAL_SPEED];
+			closingSpeed = line[CLOSING_SPEED];
+		}
+
+		if (timer != null) {
+			time = timer.lap(Phase.SENSING, time);
+		}
 
+		// Process the state using the bots neural network to get bot's outputs
+		bot.processInputs(colorSeen, distance, relativeAngle, lateralSpeed, closingSpeed, closestBallDistance,
+				closestBallRelativeAngle, closetBallColor, config.getActivation());
+		if (timer != null) {
+			time = timer.lap(Phase.INFERENCE, time);
+		}
+
+		// Update bot's position and orientation
+		bot.updateBotPosition(config.isSolidWalls(), config.getMaxTurnRate(), config.getMaxSpeed(), trig);
+		if (timer != null) {
+			time = timer.lap(Phase.MOVEMENT, time);
+		}
+
+		// Update bot's fitness based on ball contact
+		if (colorSeen == Color.RED) {
+			bot.fitness -= config.getRedBallDetriment();
+		} else if (colorSeen == Color.GREEN) {
+			bot.fitness += config.getGreenBallBenefit();
+		}
+
+		if (heat != null) {
+			heat.record(bot.getxPos() + bot.getSize() / 2.0, bot.getyPos() + bot.getSize() / 2.0, colorSeen);
+		}
+		if (timer != null) {
+			timer.lap(Phase.FITNESS_UPDATE, time);
 		}
 	}
 
+	/**
+	 * Heat map for bots to record themselves in when enabled, else null
+	 */
+	private HeatMap recordingHeatMap() {
+		if (!config.isHeatmap()) {
+			return null;
+		}
+		if (this.heatMap == null) {
+			this.heatMap = new HeatMap();
+		}
+		return this.heatMap;
+	}
+
+	/**
+	 * Timer for the generation being trained when phase timing is enabled, else
+	 * null
+	 */
+	private PhaseTimer recordingPhaseTimer() {
+		if (!config.isPhaseTiming()) {
+			return null;
+		}
+		if (this.phaseTimer == null) {
+			this.phaseTimer = new PhaseTimer();
+		}
+		return this.phaseTimer;
+	}
+
 	public String createNextGeneration() {
 
+		// Bots dropped by racing rank behind every bot that ran to the end
+		final int numBots = this.bots.size();
+		final boolean[] dropped = new boolean[numBots];
+		if (this.contenders != null) {
+			final Set<Bot> racedToEnd = Collections.newSetFromMap(new IdentityHashMap<>());
+			racedToEnd.addAll(this.contenders);
+			for (int i = 0; i < numBots; i++) {
+				dropped[i] = !racedToEnd.contains(this.bots.get(i));
+			}
+		}
+		endRace();
+		final PhaseTimer timer = recordingPhaseTimer();
+		long time = (timer != null) ? System.nanoTime() : 0;
+
 		// Update generation number and time step number
 		this.generationNumber++;
 		this.timeStepNumber = 0;
+		reseed();
 
-		SortedSet<Bot> sortedByFitness = new TreeSet<>();
-		sortedByFitness.addAll(this.bots);
+		// Rank bots from plain arrays of their fitness and ids
+		final double[] fitnesses = new double[numBots];
+		final long[] botIds = new long[numBots];
+		for (int i = 0; i < numBots; i++) {
+			fitnesses[i] = this.bots.get(i).getFitness();
+			botIds[i] = this.bots.get(i).botId;
+		}
 
-		// Determine two bots with greatest fitness
-		final Bot mom = sortedByFitness.first();
-		sortedByFitness.remove(mom);
-		final Bot dad = sortedByFitness.first();
-		sortedByFitness.remove(dad);
-		final Bot thirdBest = sortedByFitness.first();
-		sortedByFitness.remove(thirdBest);
-		final Bot fourthBest = sortedByFitness.first();
-		sortedByFitness.remove(fourthBest);
-		final Bot fifthBest = sortedByFitness.first();
+		// Determine five bots with greatest fitness, and any more sent as migrants
+		final int[] leaders = Selection.best(fitnesses, botIds, dropped, Math.max(5, config.getMigrantsPerIsland()));
+		final Bot mom = this.bots.get(leaders[0]);
+		final Bot dad = this.bots.get(leaders[1]);
+		final Bot thirdBest = this.bots.get(leaders[2]);
+		final Bot fourthBest = this.bots.get(leaders[3]);
+		final Bot fifthBest = this.bots.get(leaders[4]);
+
+		final List<Bot> leaderBots = new ArrayList<>();
+		for (final int leader : leaders) {
+			leaderBots.add(this.bots.get(leader));
+			this.privateNetworks.remove(this.bots.get(leader).getBrain().getNeuralNet());
+		}
+		this.lastGenerationLeaders = Collections.unmodifiableList(leaderBots);
 
 		// Save best of all time if new record set
 		if (mom.getFitness() > this.bestScoreOfAllTime) {
@@ -237,12 +693,29 @@ public class BotLife {
 		for (Bot bot : bots) {
 			totalFitness += bot.getFitness();
 		}
-		final String returnStats = "New Generation #: " + generationNumber + " best fitness: " + mom.getFitness()
+		String returnStats = "New Generation #: " + generationNumber + " best fitness: " + mom.getFitness()
 				+ ", average fitness: " + (totalFitness / bots.size());
+		if (config.getRacingRounds() > 1) {
+			returnStats += ", bot steps saved by racing: " + this.lastGenerationBotStepsSaved;
+		}
 		System.out.println(returnStats);
 		this.bestBotFitness = mom.getFitness();
 		this.averageBotFitness = (totalFitness / bots.size());
 
+		// Delete only the worst bots from each generation, their genomes making room
+		// for the offspring
+		final int botsToReplace = (int) (config.getFractionThatDie() * config.getGenerationSize());
+		final boolean[] worstPerformers = Selection.worst(fitnesses, botIds, dropped, botsToReplace);
+		for (int i = 0; i < numBots; i++) {
+			final NeuralNetwork network = this.bots.get(i).getBrain().getNeuralNet();
+			if (worstPerformers[i] && this.privateNetworks.remove(network)) {
+				this.genomePool.release(network);
+			}
+		}
+		if (timer != null) {
+			time = timer.lap(Phase.SELECTION, time);
+		}
+
 		// Parents
 		final NeuralNetwork p1 = mom.getBrain().getNeuralNet();
 		final NeuralNetwork p2 = dad.getBrain().getNeuralNet();
@@ -250,112 +723,99 @@ public class BotLife {
 		final NeuralNetwork p4 = fourthBest.getBrain().getNeuralNet();
 		final NeuralNetwork p5 = fifthBest.getBrain().getNeuralNet();
 
-		// Create some average offspring
-		final NeuralNetwork p1p2Avg = Reproduce.average(p1, p2);
-		final NeuralNetwork p1p3Avg = Reproduce.average(p1, p3);
-		final NeuralNetwork p2p3Avg = Reproduce.average(p2, p3);
-
-		// Create some mixed offspring
-		final NeuralNetwork p1p2even = Reproduce.sample(p1, p2, 0.5);
-		final NeuralNetwork p1p2mostly = Reproduce.sample(p1, p2, 0.90);
-		final NeuralNetwork p1p2bias = Reproduce.sample(p1, p2, 0.75);
-		final NeuralNetwork p2p3even = Reproduce.sample(p2, p3, 0.5);
-		final NeuralNetwork p2p3mostly = Reproduce.sample(p2, p3, 0.90);
-		final NeuralNetwork p2p3bias = Reproduce.sample(p2, p3, 0.75);
-		final NeuralNetwork p3p4even = Reproduce.sample(p3, p4, 0.50);
-
-		// Create mutants
-		double mutationRate = Math.random() * config.getMutationRate();
-
-		final NeuralNetwork p1Mutant = Reproduce.mutate(p1, mutationRate);
-		final NeuralNetwork p2Mutant = Reproduce.mutate(p2, mutationRate);
-		final NeuralNetwork p3Mutant = Reproduce.mutate(p3, mutationRate);
-		final NeuralNetwork p4Mutant = Reproduce.mutate(p4, mutationRate);
-		final NeuralNetwork p5Mutant = Reproduce.mutate(p5, mutationRate);
-
-		final NeuralNetwork p1Tweaked = Reproduce.tweak(p1, mutationRate);
-		final NeuralNetwork p2Tweaked = Reproduce.tweak(p2, mutationRate);
-		final NeuralNetwork p3Tweaked = Reproduce.tweak(p3, mutationRate);
-		final NeuralNetwork p4Tweaked = Reproduce.tweak(p4, mutationRate);
-		final NeuralNetwork p5Tweaked = Reproduce.tweak(p5, mutationRate);
-
-		final NeuralNetwork p1TweakedMore = Reproduce.tweak(p1, mutationRate * 5);
-		final NeuralNetwork p2TweakedMore = Reproduce.tweak(p2, mutationRate * 5);
-		final NeuralNetwork p3TweakedMore = Reproduce.tweak(p3, mutationRate * 5);
-		final NeuralNetwork p4TweakedMore = Reproduce.tweak(p4, mutationRate * 5);
-		final NeuralNetwork p5TweakedMore = Reproduce.tweak(p5, mutationRate * 5);
+		// Breed the offspring, in parallel if enabled, each from its own stream
+		final List<NeuralNetwork> bred;
+		if (config.isParallelBreeding()) {
+			final double mutationRate = breedingRandom.nextDouble() * config.getMutationRate();
+			final List<Function<SplittableRandom, NeuralNetwork>> plan = crossovers(p1, p2, p3, p4);
+			plan.addAll(mutants(new NeuralNetwork[] { p1, p2, p3, p4, p5 }, mutationRate));
+			plan.add(this::randomNetwork);
+			plan.add(this::randomNetwork);
+			final long generation = this.generationNumber;
+			bred = IntStream.range(0, plan.size()).parallel()
+					.mapToObj(i -> plan.get(i).apply(RandomStreams.forOffspring(config, generation, i)))
+					.collect(Collectors.toList());
+		} else {
+			bred = breed(crossovers(p1, p2, p3, p4), breedingRandom);
+			final double mutationRate = breedingRandom.nextDouble() * config.getMutationRate();
+			bred.addAll(breed(mutants(new NeuralNetwork[] { p1, p2, p3, p4, p5 }, mutationRate), breedingRandom));
+		}
 
 		// Make new bots from the new generation
 		final List<Bot> nextGeneration = new ArrayList<>();
 
 		// Save best performer of all time
-		nextGeneration.add(new Bot(this.bestOfAllTime));
+		nextGeneration.add(new Bot(this.bestOfAllTime, breedingRandom.split()));
 
 		// Best performers from prior generation
-		nextGeneration.add(new Bot(new BotBrain(p1)));
-		nextGeneration.add(new Bot(new BotBrain(p2)));
-		nextGeneration.add(new Bot(new BotBrain(p3)));
-		nextGeneration.add(new Bot(new BotBrain(p4)));
-		nextGeneration.add(new Bot(new BotBrain(p5)));
-
-		// Averaged Children
-		nextGeneration.add(new Bot(new BotBrain(p1p2Avg)));
-		nextGeneration.add(new Bot(new BotBrain(p1p3Avg)));
-		nextGeneration.add(new Bot(new BotBrain(p2p3Avg)));
-
-		// Mixed Children
-		nextGeneration.add(new Bot(new BotBrain(p1p2even)));
-		nextGeneration.add(new Bot(new BotBrain(p1p2mostly)));
-		nextGeneration.add(new Bot(new BotBrain(p1p2bias)));
-		nextGeneration.add(new Bot(new BotBrain(p2p3even)));
-		nextGeneration.add(new Bot(new BotBrain(p2p3mostly)));
-		nextGeneration.add(new Bot(new BotBrain(p2p3bias)));
-		nextGeneration.add(new Bot(new BotBrain(p3p4even)));
-
-		// Mutants
-		nextGeneration.add(new Bot(new BotBrain(p1Mutant)));
-		nextGeneration.add(new Bot(new BotBrain(p2Mutant)));
-		nextGeneration.add(new Bot(new BotBrain(p3Mutant)));
-		nextGeneration.add(new Bot(new BotBrain(p4Mutant)));
-		nextGeneration.add(new Bot(new BotBrain(p5Mutant)));
-
-		// Tweaked
-		nextGeneration.add(new Bot(new BotBrain(p1Tweaked)));
-		nextGeneration.add(new Bot(new BotBrain(p2Tweaked)));
-		nextGeneration.add(new Bot(new BotBrain(p3Tweaked)));
-		nextGeneration.add(new Bot(new BotBrain(p4Tweaked)));
-		nextGeneration.add(new Bot(new BotBrain(p5Tweaked)));
-
-		// Tweaked More
-		nextGeneration.add(new Bot(new BotBrain(p1TweakedMore)));
-		nextGeneration.add(new Bot(new BotBrain(p2TweakedMore)));
-		nextGeneration.add(new Bot(new BotBrain(p3TweakedMore)));
-		nextGeneration.add(new Bot(new BotBrain(p4TweakedMore)));
-		nextGeneration.add(new Bot(new BotBrain(p5TweakedMore)));
+		nextGeneration.add(new Bot(new BotBrain(p1), breedingRandom.split()));
+		nextGeneration.add(new Bot(new BotBrain(p2), breedingRandom.split()));
+		nextGeneration.add(new Bot(new BotBrain(p3), breedingRandom.split()));
+		nextGeneration.add(new Bot(new BotBrain(p4), breedingRandom.split()));
+		nextGeneration.add(new Bot(new BotBrain(p5), breedingRandom.split()));
+
+		// Averaged, mixed, mutated and tweaked children
+		for (final NeuralNetwork kid : bred) {
+			nextGeneration.add(new Bot(new BotBrain(kid), breedingRandom.split()));
+		}
 
 		// Random -- keep things fresh
-		nextGeneration.add(new Bot(config.getBrainSize()));
-		nextGeneration.add(new Bot(config.getBrainSize()));
+		if (!config.isParallelBreeding()) {
+			nextGeneration.add(newRandomBot(breedingRandom.split()));
+			nextGeneration.add(newRandomBot(breedingRandom.split()));
+		}
 
-		// Delete only the worst bots from each generation, and replace randomly
-		// with candidates for the new generation
-		final int botsToReplace = (int) (config.getFractionThatDie() * config.getGenerationSize());
-		final SortedSet<Bot> survivingBots = new TreeSet<>();
-		survivingBots.addAll(this.bots);
-		for (int i = 0; i < botsToReplace; i++) {
-			final Bot worstPerformer = survivingBots.last();
-			survivingBots.remove(worstPerformer);
+		// Everything above but the best performers was bred here
+		final Set<NeuralNetwork> offspring = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (int i = 6; i < nextGeneration.size(); i++) {
+			offspring.add(nextGeneration.get(i).getBrain().getNeuralNet());
+		}
+
+		// Replace the worst bots randomly with candidates for the new generation
+		final List<Bot> survivingBots = new ArrayList<>();
+		for (int i = 0; i < numBots; i++) {
+			if (!worstPerformers[i]) {
+				survivingBots.add(this.bots.get(i));
+			}
 		}
 		// Randomly pick replacement bots to form next generation
-		Collections.shuffle(nextGeneration);
+		for (int i = nextGeneration.size() - 1; i > 0; i--) {
+			Collections.swap(nextGeneration, i, breedingRandom.nextInt(i + 1));
+		}
 		for (int i = 0; i < botsToReplace; i++) {
 			survivingBots.add(nextGeneration.get(i));
 		}
 
+		// Offspring left unpicked were never seen by anyone, so their genomes go
+		// straight back for the next generation
+		for (int i = botsToReplace; i < nextGeneration.size(); i++) {
+			final NeuralNetwork network = nextGeneration.get(i).getBrain().getNeuralNet();
+			if (offspring.remove(network)) {
+				this.genomePool.release(network);
+			}
+		}
+
+		// Fittest first, each bot's place picks its random stream
+		Collections.sort(survivingBots);
+
 		// Erase old bots and add copies of surviving bot's brains
 		this.bots.clear();
+		final Set<NeuralNetwork> stillPrivate = Collections.newSetFromMap(new IdentityHashMap<>());
 		for (final Bot bot : survivingBots) {
-			this.bots.add(new Bot(bot.getBrain()));
+			this.bots.add(new Bot(bot.getBrain(), RandomStreams.forBot(config, generationNumber, this.bots.size())));
+			final NeuralNetwork network = bot.getBrain().getNeuralNet();
+			if (offspring.contains(network) || this.privateNetworks.contains(network)) {
+				stillPrivate.add(network);
+			}
+		}
+		this.privateNetworks = stillPrivate;
+
+		// Report where the generation's time went and add it to the total
+		if (timer != null) {
+			timer.lap(Phase.REPRODUCTION, time);
+			System.out.println("Generation #" + (generationNumber - 1) + " phase times: " + timer.summary());
+			timer.addTo(PhaseTimer.total());
+			timer.reset();
 		}
 
 		// Reset balls with each generation
@@ -364,28 +824,163 @@ public class BotLife {
 		return returnStats;
 	}
 
+	/**
+	 * Offspring mixing the genes of two parents, in the order they join the
+	 * candidates for the next generation
+	 */
+	private List<Function<SplittableRandom, NeuralNetwork>> crossovers(final NeuralNetwork p1,
+			final NeuralNetwork p2, final NeuralNetwork p3, final NeuralNetwork p4) {
+		final List<Function<SplittableRandom, NeuralNetwork>> plan = new ArrayList<>();
+
+		// Averaged children
+		plan.add(random -> Reproduce.average(p1, p2, genomePool));
+		plan.add(random -> Reproduce.average(p1, p3, genomePool));
+		plan.add(random -> Reproduce.average(p2, p3, genomePool));
+
+		// Mixed children
+		plan.add(random -> Reproduce.sample(p1, p2, 0.5, random, genomePool));
+		plan.add(random -> Reproduce.sample(p1, p2, 0.90, random, genomePool));
+		plan.add(random -> Reproduce.sample(p1, p2, 0.75, random, genomePool));
+		plan.add(random -> Reproduce.sample(p2, p3, 0.5, random, genomePool));
+		plan.add(random -> Reproduce.sample(p2, p3, 0.90, random, genomePool));
+		plan.add(random -> Reproduce.sample(p2, p3, 0.75, random, genomePool));
+		plan.add(random -> Reproduce.sample(p3, p4, 0.50, random, genomePool));
+		return plan;
+	}
+
+	/**
+	 * Offspring of a single parent with some genes changed: mutants, tweaked and
+	 * tweaked more, each of every parent in turn
+	 */
+	private List<Function<SplittableRandom, NeuralNetwork>> mutants(final NeuralNetwork[] parents,
+			double mutationRate) {
+		final List<Function<SplittableRandom, NeuralNetwork>> plan = new ArrayList<>();
+		for (final NeuralNetwork parent : parents) {
+			plan.add(random -> Reproduce.mutate(parent, mutationRate, random, genomePool));
+		}
+		for (final NeuralNetwork parent : parents) {
+			plan.add(random -> Reproduce.tweak(parent, mutationRate, random, genomePool));
+		}
+		for (final NeuralNetwork parent : parents) {
+			plan.add(random -> Reproduce.tweak(parent, mutationRate * 5, random, genomePool));
+		}
+		return plan;
+	}
+
+	// Empty brain of the configured size, inference version and precision
+	private BotBrain newBrain() {
+		return new BotBrain(config.getBrainSize(), config.getInferenceVersion(), config.getBrainPrecision());
+	}
+
+	// Bot with a brain of the configured kind, placed and given random weights
+	// from the given stream. Unlike randomNetwork() the bot is placed before its
+	// weights are drawn, as seeded runs always have.
+	private Bot newRandomBot(final SplittableRandom random) {
+		return new Bot(config.getBrainSize(), config.getInferenceVersion(), config.getBrainPrecision(), random,
+				genomePool);
+	}
+
+	private NeuralNetwork randomNetwork(final SplittableRandom random) {
+		final BotBrain brain = new BotBrain(config.getBrainSize(), config.getInferenceVersion(),
+				config.getBrainPrecision(), genomePool);
+		brain.randomize(random);
+		return brain.getNeuralNet();
+	}
+
+	// Breed one offspring after another, all drawing from the given stream
+	private static List<NeuralNetwork> breed(final List<Function<SplittableRandom, NeuralNetwork>> plan,
+			final SplittableRandom random) {
+		final List<NeuralNetwork> bred = new ArrayList<>();
+		for (final Function<SplittableRandom, NeuralNetwork> offspring : plan) {
+			bred.add(offspring.apply(random));
+		}
+		return bred;
+	}
+
 	public void resetBalls() {
+		storeColumns();
 		this.balls.clear();
 		for (int i = 0; i < this.config.getNumGreenBalls(); i++) {
-			balls.add(Ball.createRandomGreenBall(config.getBallSize()));
+			balls.add(Ball.createRandomGreenBall(config.getBallSize(), this.ballRandom));
 		}
 		for (int i = 0; i < this.config.getNumRedBalls(); i++) {
-			balls.add(Ball.createRandomRedBall(config.getBallSize()));
+			balls.add(Ball.createRandomRedBall(config.getBallSize(), this.ballRandom));
 		}
+
+		// Recorded again from the new balls when next needed
+		this.ballTape = null;
 	}
 
 	public void resetBots() {
+		storeColumns();
+		this.contenders = null;
 		this.bots.clear();
 		for (int i = 0; i < config.getGenerationSize(); i++) {
-			this.bots.add(new Bot(config.getBrainSize()));
+			this.bots.add(newRandomBot(RandomStreams.forBot(config, this.generationNumber, i)));
+		}
+		publishSnapshot();
+	}
+
+	/**
+	 * Derive the random streams for the current generation from the run's seed
+	 */
+	private void reseed() {
+		this.ballRandom = RandomStreams.forBalls(config, this.generationNumber);
+		this.breedingRandom = RandomStreams.forBreeding(config, this.generationNumber);
+	}
+
+	/**
+	 * Replace the lowest ranked bots of the current generation with bots using the
+	 * given brains, for example migrants from another population
+	 */
+	public void replaceWeakestBots(final List<BotBrain> brains) {
+		storeColumns();
+		this.contenders = null;
+		for (int i = 0; i < brains.size() && i < this.bots.size(); i++) {
+			final int index = this.bots.size() - 1 - i;
+			this.bots.set(index,
+					new Bot(brains.get(i), RandomStreams.create(config.getRandomSeed(), generationNumber, index, i)));
 		}
 	}
 
+	/**
+	 * Bot time steps skipped by racing in the last completed generation
+	 */
+	public long getLastGenerationBotStepsSaved() {
+		return lastGenerationBotStepsSaved;
+	}
+
+	/**
+	 * The ball motion being played when ball tapes are enabled, or null
+	 */
+	public BallTape getBallTape() {
+		return ballTape;
+	}
+
+	public int getBallTapeFrame() {
+		return ballTapeFrame;
+	}
+
+	/**
+	 * Play the given ball motion from the given frame on, for example to follow
+	 * the tape of another BotLife whose balls ours were copied from
+	 */
+	public void shareBallTape(final BallTape ballTape, int frame) {
+		this.ballTape = ballTape;
+		this.ballTapeFrame = frame;
+	}
+
+	public List<Bot> getLastGenerationLeaders() {
+		return lastGenerationLeaders;
+	}
+
 	public List<Bot> getBots() {
+		storeColumns();
 		return bots;
 	}
 
 	public List<Ball> getBalls() {
+		storeColumns();
 		return balls;
 	}
 
@@ -399,6 +994,7 @@ public class BotLife {
 
 	public void setGenerationNumber(long generationNumber) {
 		this.generationNumber = generationNumber;
+		reseed();
 	}
 
 	public int getNumGreenBalls() {
@@ -0,0 +1,463 @@
+package life;
+
+import java.awt.Color;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+import arena.Ball;
+import arena.BallGrid;
+import arena.BallTape;
+import arena.Line;
+import arena.Trig;
+import brain.Activation;
+import brain.BotBrain;
+import brain.NeuralNetwork;
+import brain.PopulationNetwork;
+
+/**
+ * Alternative engine for BotLife which keeps the state of every bot and ball
+ * in primitive columns (one array per property) rather than spread across Bot
+ * and Ball objects, so each time step walks memory linearly.
+ *
+ * The Bot and Ball objects remain the source of truth for everything else
+ * (saving, display, selection). BotLife loads the columns from them before
+ * stepping and stores the columns back into them whenever they are looked at.
+ *
+ * Each time step senses for every bot, then runs all of the brains together
+ * as one PopulationNetwork, then moves every bot.
+ */
+class ColumnarWorld {
+
+	// Color codes for balls and what bots see
+	static final byte NONE = 0;
+	static final byte GREEN = 1;
+	static final byte RED = -1;
+	static final byte YELLOW = 2;
+
+	/** Bot columns **/
+
+	int numBots;
+	BotBrain[] brains = new BotBrain[0];
+	SplittableRandom[] randoms = new SplittableRandom[0];
+
+	// Spatial position and orientation
+	double[] xPos = new double[0];
+	double[] yPos = new double[0];
+	double[] orientation = new double[0];
+	double[] headingX = new double[0];
+	double[] headingY = new double[0];
+	double[] stuck = new double[0];
+
+	// Trig the headings are worked out with
+	Trig trig = Trig.EXACT;
+
+	// Outputs from neural network
+	double[] scanAngle = new double[0];
+	double[] turnRate = new double[0];
+	double[] speed = new double[0];
+	double[] extendedLength = new double[0];
+
+	// Internal state
+	long[] timeCount = new long[0];
+	long[] timeOfLastDetection = new long[0];
+	double[] lookAngleOfLastDetection = new double[0];
+	double[] lastSeenColor = new double[0];
+	double[] lastAngleDifference = new double[0];
+
+	double[] fitness = new double[0];
+	byte[] colorSeen = new byte[0];
+
+	/** Ball columns **/
+
+	int numBalls;
+	double[] ballX = new double[0];
+	double[] ballY = new double[0];
+	double[] ballXVel = new double[0];
+	double[] ballYVel = new double[0];
+	double[] ballSize = new double[0];
+	byte[] ballColor = new byte[0];
+
+	private final BallGrid ballGrid = new BallGrid();
+	private final ThreadLocal<int[]> ballCandidates = ThreadLocal.withInitial(() -> new int[0]);
+	private final ThreadLocal<double[]> sightScratch = ThreadLocal.withInitial(() -> new double[BotLife.SENSING_SIZE]);
+
+	// Neural network inputs and outputs of every bot, [bot][input] and
+	// [bot][output], reused every time step
+	double[] inputs = new double[0];
+	double[] outputs = new double[0];
+
+	private final PopulationNetwork network = new PopulationNetwork();
+	private boolean batched = false;
+
+	// Buffers for bots that think on their own, sized on load for the largest
+	// brain
+	private final double[] botInputs = new double[Bot.NUM_INPUTS];
+	private double[] botResults = new double[0];
+	private double[] botScratch = new double[0];
+
+	public void loadBots(final List<Bot> bots, final Trig trig) {
+		this.numBots = bots.size();
+		this.trig = trig;
+		if (xPos.length < numBots) {
+			brains = new BotBrain[numBots];
+			randoms = new SplittableRandom[numBots];
+			xPos = new double[numBots];
+			yPos = new double[numBots];
+			orientation = new double[numBots];
+			headingX = new double[numBots];
+			headingY = new double[numBots];
+			stuck = new double[numBots];
+			scanAngle = new double[numBots];
+			turnRate = new double[numBots];
+			speed = new double[numBots];
+			extendedLength = new double[numBots];
+			timeCount = new long[numBots];
+			timeOfLastDetection = new long[numBots];
+			lookAngleOfLastDetection = new double[numBots];
+			lastSeenColor = new double[numBots];
+			lastAngleDifference = new double[numBots];
+			fitness = new double[numBots];
+			colorSeen = new byte[numBots];
+			inputs = new double[numBots * Bot.NUM_INPUTS];
+			outputs = new double[numBots * Bot.NUM_OUTPUTS];
+		}
+		for (int i = 0; i < numBots; i++) {
+			bots.get(i).useTrig(trig);
+			bots.get(i).writeToColumns(this, i);
+		}
+
+		// Bots of mixed brain sizes (say after changing the brain size mid run) each
+		// think on their own
+		this.batched = network.load(brains, numBots) && network.getNumInputs() == Bot.NUM_INPUTS
+				&& network.getNumOutputs() == Bot.NUM_OUTPUTS;
+		if (!batched) {
+			for (int i = 0; i < numBots; i++) {
+				final NeuralNetwork neuralNet = this.brains[i].getNeuralNet();
+				if (botResults.length < neuralNet.getNumOutputs()) {
+					botResults = new double[neuralNet.getNumOutputs()];
+				}
+				if (botScratch.length < neuralNet.getScratchSize()) {
+					botScratch = new double[neuralNet.getScratchSize()];
+				}
+			}
+		}
+	}
+
+	public void storeBots(final List<Bot> bots) {
+		for (int i = 0; i < numBots; i++) {
+			bots.get(i).readFromColumns(this, i);
+		}
+	}
+
+	public void loadBalls(final List<Ball> balls) {
+		this.numBalls = balls.size();
+		if (ballX.length < numBalls) {
+			ballX = new double[numBalls];
+			ballY = new double[numBalls];
+			ballXVel = new double[numBalls];
+			ballYVel = new double[numBalls];
+			ballSize = new double[numBalls];
+			ballColor = new byte[numBalls];
+		}
+		for (int i = 0; i < numBalls; i++) {
+			final Ball ball = balls.get(i);
+			ballX[i] = ball.getxPos();
+			ballY[i] = ball.getyPos();
+			ballXVel[i] = ball.getxVel();
+			ballYVel[i] = ball.getyVel();
+			ballSize[i] = ball.getSize();
+			ballColor[i] = colorCode(ball.getColor());
+		}
+	}
+
+	public void storeBalls(final List<Ball> balls) {
+		for (int i = 0; i < numBalls; i++) {
+			final Ball ball = balls.get(i);
+			ball.setPosition(ballX[i], ballY[i]);
+			ball.setVelocity(ballXVel[i], ballYVel[i]);
+		}
+	}
+
+	/**
+	 * Feed a ball the given number of times, which may teleport it
+	 */
+	public void feedBall(final List<Ball> balls, int ball, int times) {
+		final Ball fed = balls.get(ball);
+		fed.setPosition(ballX[ball], ballY[ball]);
+		fed.setVelocity(ballXVel[ball], ballYVel[ball]);
+		for (int i = 0; i < times; i++) {
+			fed.feed();
+		}
+		ballX[ball] = fed.getxPos();
+		ballY[ball] = fed.getyPos();
+		ballXVel[ball] = fed.getxVel();
+		ballYVel[ball] = fed.getyVel();
+	}
+
+	static byte colorCode(final Color color) {
+		if (color == Color.GREEN) {
+			return GREEN;
+		} else if (color == Color.RED) {
+			return RED;
+		} else if (color == Color.YELLOW) {
+			return YELLOW;
+		} else {
+			return NONE;
+		}
+	}
+
+	static Color colorOf(byte colorCode) {
+		if (colorCode == GREEN) {
+			return Color.GREEN;
+		} else if (colorCode == RED) {
+			return Color.RED;
+		} else if (colorCode == YELLOW) {
+			return Color.YELLOW;
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Advance the world one time step, playing the given frame of the ball tape
+	 * if there is one rather than moving the balls, and timing each pass when
+	 * given a timer
+	 */
+	public void doTimeStep(final Configuration config, final AtomicIntegerArray ballFeedings, final BallTape ballTape,
+			int ballTapeFrame, final HeatMap heat, final PhaseTimer timer) {
+		long time = (timer != null) ? System.nanoTime() : 0;
+
+		// Update position of each ball
+		if (ballTape != null) {
+			ballTape.apply(ballTapeFrame, ballX, ballY, ballXVel, ballYVel);
+		} else {
+			moveBalls(config.isSolidWalls());
+		}
+		this.ballGrid.rebuild(ballX, ballY, ballSize, numBalls);
+		if (timer != null) {
+			time = timer.lap(Phase.BALL_MOVEMENT, time);
+		}
+
+		// Sense, then think, then move every bot
+		final boolean parallel = config.isParallelTimeStep();
+		if (parallel) {
+			IntStream.range(0, numBots).parallel().forEach(i -> senseBot(i, config, ballFeedings));
+		} else {
+			for (int i = 0; i < numBots; i++) {
+				senseBot(i, config, ballFeedings);
+			}
+		}
+		if (timer != null) {
+			time = timer.lap(Phase.SENSING, time);
+		}
+
+		think(parallel);
+		if (timer != null) {
+			time = timer.lap(Phase.INFERENCE, time);
+		}
+
+		if (parallel) {
+			IntStream.range(0, numBots).parallel().forEach(i -> moveBot(i, config, heat));
+		} else {
+			for (int i = 0; i < numBots; i++) {
+				moveBot(i, config, heat);
+			}
+		}
+		if (timer != null) {
+			timer.lap(Phase.MOVEMENT, time);
+		}
+	}
+
+	private void think(boolean parallel) {
+		if (batched) {
+			network.propagate(inputs, outputs, parallel);
+			return;
+		}
+
+		for (int bot = 0; bot < numBots; bot++) {
+			System.arraycopy(inputs, bot * Bot.NUM_INPUTS, botInputs, 0, Bot.NUM_INPUTS);
+			this.brains[bot].processInputs(botInputs, botResults, botScratch);
+			System.arraycopy(botResults, 0, outputs, bot * Bot.NUM_OUTPUTS, Bot.NUM_OUTPUTS);
+		}
+	}
+
+	private void moveBalls(final boolean solidWalls) {
+		for (int i = 0; i < numBalls; i++) {
+			ballX[i] = Ball.step(ballX[i], ballXVel[i], solidWalls);
+			ballY[i] = Ball.step(ballY[i], ballYVel[i], solidWalls);
+			ballXVel[i] = Ball.bounce(ballX[i], ballXVel[i], solidWalls);
+			ballYVel[i] = Ball.bounce(ballY[i], ballYVel[i], solidWalls);
+		}
+	}
+
+	private void senseBot(final int bot, final Configuration config, final AtomicIntegerArray ballFeedings) {
+
+		final double maxSpeed = config.getMaxSpeed();
+		final double scanDegrees = config.getScanDegrees();
+		final Trig trig = config.getTrig();
+
+		// Line of sight, from the tip of the nose along the antenna
+		final double[] sight = sightScratch.get();
+		Line.fromBotSight(xPos[bot], yPos[bot], Bot.SIZE, Bot.HEAD_SIZE, headingX[bot], headingY[bot],
+				orientation[bot], scanAngle[bot] * (scanDegrees / 2.0),
+				extendedLength[bot] * config.getAntennaLength(), trig, sight);
+		final double noseX = sight[Line.X1];
+		final double noseY = sight[Line.Y1];
+		final double scanEndX = sight[Line.X2];
+		final double scanEndY = sight[Line.Y2];
+		final double lineLength = sight[Line.LENGTH];
+		final double lineAngle = sight[Line.ANGLE];
+
+		// Send bot data about closest ball (hearing)
+		double closestBallDistance = 5.0;
+		double closestBallRelativeAngle = 0;
+		double closetBallColor = 0;
+
+		final int closestBall = ballGrid.findClosest(noseX, noseY, closestBallDistance);
+		if (closestBall >= 0) {
+			closestBallDistance = Line.calculateDistance(noseX, noseY, ballCenterX(closestBall),
+					ballCenterY(closestBall));
+			closestBallRelativeAngle = lineAngle - Math.toRadians(orientation[bot]);
+			closetBallColor = (ballColor[closestBall] == RED) ? -1 : 1;
+		}
+
+		// Change color to intersection of any balls.
+		byte seen = NONE;
+		double distance = 1;
+		double lateralSpeed = 0.0;
+		double closingSpeed = 0.0;
+		double relativeAngle = 0.0;
+
+		int[] candidates = ballCandidates.get();
+		if (candidates.length < numBalls) {
+			candidates = new int[numBalls];
+			ballCandidates.set(candidates);
+		}
+		final int numCandidates = ballGrid.findCandidates(noseX, noseY, scanEndX, scanEndY, candidates);
+		int seenBall = -1;
+		for (int c = 0; c < numCandidates; c++) {
+			final int ball = candidates[c];
+			if (Line.doesIntersect(sight, ballCenterX(ball), ballCenterY(ball), ballSize[ball] / 2.0)) {
+
+				// The last ball crossed is the one we see
+				seenBall = ball;
+
+				// Ball is fed once all bots have finished sensing
+				ballFeedings.incrementAndGet(ball);
+			}
+		}
+
+		if (seenBall >= 0) {
+			final double centerX = ballCenterX(seenBall);
+			final double centerY = ballCenterY(seenBall);
+			seen = ballColor[seenBall];
+
+			// Express distance as from tip of nose to the ball center, as fraction of
+			// length of sight
+			distance = Line.calculateDistance(noseX, noseY, centerX, centerY) / lineLength;
+			relativeAngle = lineAngle - trig.atan2(centerY - noseY, centerX - noseX);
+
+			// Relative motion of the ball across and along our line of sight
+			BotLife.senseMotion(ballXVel[seenBall], ballYVel[seenBall], Bot.speedOf(speed[bot], maxSpeed),
+					headingX[bot], headingY[bot], maxSpeed, orientation[bot] + (scanAngle[bot] * (scanDegrees / 2.0)),
+					trig, sight);
+			lateralSpeed = sight[BotLife.LATERAL_SPEED];
+			closingSpeed = sight[BotLife.CLOSING_SPEED];
+		}
+		this.colorSeen[bot] = seen;
+
+		collectInputs(bot, seen, distance, relativeAngle, lateralSpeed, closingSpeed, closestBallDistance,
+				closestBallRelativeAngle, closetBallColor);
+	}
+
+	private void moveBot(final int bot, final Configuration config, final HeatMap heat) {
+
+		final int offset = bot * Bot.NUM_OUTPUTS;
+		final Activation activation = config.getActivation();
+		this.scanAngle[bot] = activation.tanh(outputs[offset]); // Adjust to -1 to 1
+		this.turnRate[bot] = activation.tanh(outputs[offset + 1]); // Adjust to -1 to 1
+		this.speed[bot] = activation.tanh(outputs[offset + 2]); // Adjust to -1 to 1
+		this.extendedLength[bot] = activation.sigmoid(outputs[offset + 3]); // Adjust to 0 to 1
+
+		updateBotPosition(bot, config.isSolidWalls(), config.getMaxTurnRate(), config.getMaxSpeed(), config.getTrig());
+
+		// Update bot's fitness based on ball contact
+		final byte seen = this.colorSeen[bot];
+		if (seen == RED) {
+			fitness[bot] -= config.getRedBallDetriment();
+		} else if (seen == GREEN) {
+			fitness[bot] += config.getGreenBallBenefit();
+		}
+
+		if (heat != null) {
+			heat.record(xPos[bot] + Bot.SIZE / 2.0, yPos[bot] + Bot.SIZE / 2.0, colorOf(seen));
+		}
+	}
+
+	private double ballCenterX(int ball) {
+		return ballX[ball] + (ballSize[ball] / 2.0);
+	}
+
+	private double ballCenterY(int ball) {
+		return ballY[ball] + (ballSize[ball] / 2.0);
+	}
+
+	private void collectInputs(int bot, byte seen, double distanceFromObject, double angleDifference,
+			double lateralSpeed, double closingSpeed, double closestBallDistance, double closestBallRelativeAngle,
+			double closestBallColor) {
+
+		// Advance the clock
+		timeCount[bot]++;
+
+		if (seen != NONE) {
+			this.timeOfLastDetection[bot] = timeCount[bot];
+			this.lookAngleOfLastDetection[bot] = this.scanAngle[bot];
+			this.lastSeenColor[bot] = (seen == RED ? -1 : 1);
+			this.lastAngleDifference[bot] = angleDifference;
+		}
+		long timeSinceLastDetection = (timeCount[bot] - this.timeOfLastDetection[bot]);
+
+		double nowSeeing = 0;
+		if (seen == GREEN) {
+			nowSeeing = 1.0;
+		}
+		if (seen == RED) {
+			nowSeeing = -1.0;
+		}
+
+		double noise1 = randoms[bot].nextDouble();
+		double noise2 = randoms[bot].nextDouble();
+
+		// Inputs for the neural network
+		final int offset = bot * Bot.NUM_INPUTS;
+		Bot.writeSensedInputs(inputs, offset, nowSeeing, timeSinceLastDetection, distanceFromObject, angleDifference,
+				lateralSpeed, closingSpeed, closestBallDistance, closestBallRelativeAngle, closestBallColor, noise1,
+				noise2);
+		Bot.writeStateInputs(inputs, offset, this.lastSeenColor[bot], this.lookAngleOfLastDetection[bot],
+				this.lastAngleDifference[bot], this.scanAngle[bot], this.turnRate[bot], this.speed[bot],
+				this.extendedLength[bot], this.orientation[bot], this.xPos[bot], this.yPos[bot], this.stuck[bot]);
+	}
+
+	private void updateBotPosition(int bot, boolean wallsAreSolid, double maxTurnRate, double maxSpeed,
+			final Trig trig) {
+
+		// Turn Bot
+		final double previousOrientation = orientation[bot];
+		orientation[bot] = Bot.turn(orientation[bot], turnRate[bot] * maxTurnRate);
+		if (orientation[bot] != previousOrientation) {
+			headingX[bot] = trig.cosDegrees(orientation[bot] - 90.0);
+			headingY[bot] = trig.sinDegrees(orientation[bot] - 90.0);
+		}
+
+		// Move Bot
+		final double botSpeed = Bot.speedOf(speed[bot], maxSpeed);
+		final double x = xPos[bot] + botSpeed * headingX[bot];
+		final double y = yPos[bot] + botSpeed * headingY[bot];
+		stuck[bot] = Bot.isStuck(x, y, wallsAreSolid);
+		xPos[bot] = Bot.keepInArena(x, wallsAreSolid);
+		yPos[bot] = Bot.keepInArena(y, wallsAreSolid);
+	}
+
+}
@@ -1,6 +1,12 @@
 package life;
 
 import java.io.Serializable;
+import java.util.SplittableRandom;
+
+import arena.Trig;
+import brain.Activation;
+import brain.InferenceVersion;
+import brain.Precision;
 
 public class Configuration implements Serializable, Cloneable {
 
@@ -21,14 +27,34 @@ public class Configuration implements Serializable, Cloneable {
 	// How many time steps between each generation
 	private int timeStepsPerGeneration = 20_000;
 
+	// Rounds each generation is raced in, after each round bots that can no
+	// longer survive stop running. 0 or 1 runs every bot for the whole generation
+	private int racingRounds = 0;
+
 	// Fraction of genes to mutate for a mutated organism
 	private double mutationRate = 0.05;
 
+	// Seed from which every random number of the run is derived
+	private long randomSeed = new SplittableRandom().nextLong();
+
 	/** Bot Parameters **/
 
 	// Number of neurons in hidden layer of bot's neural net
 	private int brainSize = 16;
 
+	// Which inputs each neuron of a new brain sees, LEGACY for runs saved before
+	// every input was used
+	private InferenceVersion inferenceVersion = InferenceVersion.FULL;
+
+	// Whether new brains store their genes as doubles or as floats
+	private Precision brainPrecision = Precision.DOUBLE;
+
+	// Trigonometry for moving and sensing, FAST approximates it for speed
+	private Trig trig = Trig.EXACT;
+
+	// Squashing of brain outputs, FAST approximates it for speed
+	private Activation activation = Activation.EXACT;
+
 	// Maximum degrees per time step bot can turn
 	private double maxTurnRate = 10;
 
@@ -64,6 +90,41 @@ public class Configuration implements Serializable, Cloneable {
 	// Whether or not balls and bots can pass through walls to other side
 	private boolean solidWalls = true;
 
+	/** Performance Settings **/
+
+	// Whether bots within a time step are processed in parallel across all cores
+	private boolean parallelTimeStep = false;
+
+	// Whether time steps run over primitive columns of bot and ball state
+	private boolean columnarEngine = false;
+
+	// Whether ball motion is recorded once per ball reset and played back
+	private boolean ballTape = false;
+
+	// Whether the offspring of each generation are bred in parallel
+	private boolean parallelBreeding = false;
+
+	// Whether the time spent in each phase of training is measured, see PhaseTimer
+	private boolean phaseTiming = false;
+
+	/** Island Settings **/
+
+	// Number of populations evolving side by side, 1 disables the island model
+	private int numIslands = 1;
+
+	// Generations each island evolves alone before bots migrate between islands
+	private int migrationInterval = 10;
+
+	// Number of fittest bots each island sends to each of its neighbors. An island
+	// takes in at most as many as it culls each generation.
+	private int migrantsPerIsland = 2;
+
+	// Which islands send migrants to which
+	private IslandTopology islandTopology = IslandTopology.RING;
+
+	// Number of fittest bots across all islands to remember
+	private int hallOfFameSize = 10;
+
 	/** Display Settings **/
 
 	// Number of bots to display in view
@@ -81,6 +142,14 @@ public class Configuration implements Serializable, Cloneable {
 	// How many frames per second to show in display view
 	private int framesPerSecond = 100;
 
+	// Whether the display shows where the whole population has been rather than
+	// a few bots
+	private boolean heatmap = false;
+
+	// Most snapshots of the world training takes each second for the display
+	private static final int DEFAULT_SNAPSHOTS_PER_SECOND = 30;
+	private int snapshotsPerSecond = DEFAULT_SNAPSHOTS_PER_SECOND;
+
 	/* Interally Track if Evolution has Started */
 	// If this is true, we lock certain properties from changing
 	private boolean started = false;
@@ -111,6 +180,14 @@ public class Configuration implements Serializable, Cloneable {
 		this.timeStepsPerGeneration = timeStepsPerGeneration;
 	}
 
+	public int getRacingRounds() {
+		return racingRounds;
+	}
+
+	public void setRacingRounds(int racingRounds) {
+		this.racingRounds = racingRounds;
+	}
+
 	public double getMutationRate() {
 		return mutationRate;
 	}
@@ -119,6 +196,14 @@ public class Configuration implements Serializable, Cloneable {
 		this.mutationRate = mutationRate;
 	}
 
+	public long getRandomSeed() {
+		return randomSeed;
+	}
+
+	public void setRandomSeed(long randomSeed) {
+		this.randomSeed = randomSeed;
+	}
+
 	public int getBrainSize() {
 		return brainSize;
 	}
@@ -127,6 +212,41 @@ public class Configuration implements Serializable, Cloneable {
 		this.brainSize = brainSize;
 	}
 
+	public InferenceVersion getInferenceVersion() {
+		return inferenceVersion;
+	}
+
+	public void setInferenceVersion(InferenceVersion inferenceVersion) {
+		this.inferenceVersion = inferenceVersion;
+	}
+
+	public Precision getBrainPrecision() {
+		// Settings saved before brains could be stored as floats
+		return (brainPrecision == null) ? Precision.DOUBLE : brainPrecision;
+	}
+
+	public void setBrainPrecision(Precision brainPrecision) {
+		this.brainPrecision = brainPrecision;
+	}
+
+	public Trig getTrig() {
+		// Settings saved before trigonometry could be approximated
+		return (trig == null) ? Trig.EXACT : trig;
+	}
+
+	public void setTrig(Trig trig) {
+		this.trig = trig;
+	}
+
+	public Activation getActivation() {
+		// Settings saved before activations could be approximated
+		return (activation == null) ? Activation.EXACT : activation;
+	}
+
+	public void setActivation(Activation activation) {
+		this.activation = activation;
+	}
+
 	public double getMaxTurnRate() {
 		return maxTurnRate;
 	}
@@ -215,6 +335,86 @@ public class Configuration implements Serializable, Cloneable {
 		this.solidWalls = solidWalls;
 	}
 
+	public boolean isParallelTimeStep() {
+		return parallelTimeStep;
+	}
+
+	public void setParallelTimeStep(boolean parallelTimeStep) {
+		this.parallelTimeStep = parallelTimeStep;
+	}
+
+	public boolean isColumnarEngine() {
+		return columnarEngine;
+	}
+
+	public void setColumnarEngine(boolean columnarEngine) {
+		this.columnarEngine = columnarEngine;
+	}
+
+	public boolean isBallTape() {
+		return ballTape;
+	}
+
+	public void setBallTape(boolean ballTape) {
+		this.ballTape = ballTape;
+	}
+
+	public boolean isParallelBreeding() {
+		return parallelBreeding;
+	}
+
+	public void setParallelBreeding(boolean parallelBreeding) {
+		this.parallelBreeding = parallelBreeding;
+	}
+
+	public boolean isPhaseTiming() {
+		return phaseTiming;
+	}
+
+	public void setPhaseTiming(boolean phaseTiming) {
+		this.phaseTiming = phaseTiming;
+	}
+
+	public int getNumIslands() {
+		return numIslands;
+	}
+
+	public void setNumIslands(int numIslands) {
+		this.numIslands = numIslands;
+	}
+
+	public int getMigrationInterval() {
+		return migrationInterval;
+	}
+
+	public void setMigrationInterval(int migrationInterval) {
+		this.migrationInterval = migrationInterval;
+	}
+
+	public int getMigrantsPerIsland() {
+		return migrantsPerIsland;
+	}
+
+	public void setMigrantsPerIsland(int migrantsPerIsland) {
+		this.migrantsPerIsland = migrantsPerIsland;
+	}
+
+	public IslandTopology getIslandTopology() {
+		return islandTopology;
+	}
+
+	public void setIslandTopology(IslandTopology islandTopology) {
+		this.islandTopology = islandTopology;
+	}
+
+	public int getHallOfFameSize() {
+		return hallOfFameSize;
+	}
+
+	public void setHallOfFameSize(int hallOfFameSize) {
+		this.hallOfFameSize = hallOfFameSize;
+	}
+
 	public int getDisplayBots() {
 		return displayBots;
 	}
@@ -247,6 +447,23 @@ public class Configuration implements Serializable, Cloneable {
 		this.framesPerSecond = framesPerSecond;
 	}
 
+	public boolean isHeatmap() {
+		return heatmap;
+	}
+
+	public void setHeatmap(boolean heatmap) {
+		this.heatmap = heatmap;
+	}
+
+	public int getSnapshotsPerSecond() {
+		// Settings saved before snapshots were taken
+		return (snapshotsPerSecond <= 0) ? DEFAULT_SNAPSHOTS_PER_SECOND : snapshotsPerSecond;
+	}
+
+	public void setSnapshotsPerSecond(int snapshotsPerSecond) {
+		this.snapshotsPerSecond = snapshotsPerSecond;
+	}
+
 	public int getTimeBetweenUpdates() {
 		return timeBetweenUpdates;
 	}
@@ -263,6 +480,17 @@ public class Configuration implements Serializable, Cloneable {
 		this.started = started;
 	}
 
+	/**
+	 * Independent copy of these settings
+	 */
+	public Configuration copy() {
+		try {
+			return (Configuration) super.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	public static long getSerialversionuid() {
 		return serialVersionUID;
 	}
@@ -0,0 +1,103 @@
+package life;
+
+import java.util.List;
+
+/**
+ * Checks that a seeded run gives the same bots whether time steps are split
+ * across cores or not, for the classic and the columnar engine. Two bot lives
+ * are stepped side by side, one with parallelTimeStep off and one with it on,
+ * and every bot's position, orientation and fitness must match exactly. Exits
+ * with status 1 if any differ.
+ *
+ * Usage: java -cp bin life.DeterminismCheck
+ */
+public class DeterminismCheck {
+
+	private static final int GENERATIONS = 3;
+	private static final int TIME_STEPS_PER_GENERATION = 2000;
+
+	// Time steps between comparisons
+	private static final int INTERVAL = 100;
+
+	// Threads that split time steps, unless set on the command line, so bots
+	// interleave even on machines with few cores
+	private static final String PARALLELISM = "java.util.concurrent.ForkJoinPool.common.parallelism";
+
+	private int failures = 0;
+	private int checks = 0;
+
+	public static void main(String args[]) {
+		if (System.getProperty(PARALLELISM) == null) {
+			System.setProperty(PARALLELISM, "4");
+		}
+
+		final DeterminismCheck check = new DeterminismCheck();
+		check.checkEngine(false);
+		check.checkEngine(true);
+
+		System.out.println(check.checks + " checks, " + check.failures + " failures");
+		if (check.failures > 0) {
+			System.exit(1);
+		}
+	}
+
+	private void checkEngine(boolean columnar) {
+		final BotLife sequential = new BotLife(createConfiguration(columnar, false));
+		final BotLife parallel = new BotLife(createConfiguration(columnar, true));
+		final String engine = columnar ? "columnar" : "classic";
+
+		for (int step = 1; step <= GENERATIONS * TIME_STEPS_PER_GENERATION; step++) {
+			sequential.doTimeStep(true);
+			parallel.doTimeStep(true);
+			if (step % INTERVAL == 0) {
+				compare(engine, sequential, parallel);
+			}
+		}
+	}
+
+	private void compare(final String engine, final BotLife sequential, final BotLife parallel) {
+		final String where = engine + " engine, generation " + sequential.getGenerationNumber() + " time step "
+				+ sequential.getTimeStepNumber();
+		checks++;
+		if (sequential.getGenerationNumber() != parallel.getGenerationNumber()
+				|| sequential.getTimeStepNumber() != parallel.getTimeStepNumber()) {
+			fail(where + ": parallel run is at generation " + parallel.getGenerationNumber() + " time step "
+					+ parallel.getTimeStepNumber());
+			return;
+		}
+
+		final List<Bot> expected = sequential.getBots();
+		final List<Bot> actual = parallel.getBots();
+		if (expected.size() != actual.size()) {
+			fail(where + ": " + expected.size() + " bots sequentially, " + actual.size() + " in parallel");
+			return;
+		}
+		for (int i = 0; i < expected.size(); i++) {
+			final Bot a = expected.get(i);
+			final Bot b = actual.get(i);
+			if (Double.compare(a.getxPos(), b.getxPos()) != 0 || Double.compare(a.getyPos(), b.getyPos()) != 0
+					|| Double.compare(a.getOrientation(), b.getOrientation()) != 0
+					|| Double.compare(a.getFitness(), b.getFitness()) != 0) {
+				fail(where + ", bot " + i + ": (" + a.getxPos() + ", " + a.getyPos() + ", " + a.getOrientation()
+						+ ", " + a.getFitness() + ") sequentially, (" + b.getxPos() + ", " + b.getyPos() + ", "
+						+ b.getOrientation() + ", " + b.getFitness() + ") in parallel");
+				return;
+			}
+		}
+	}
+
+	private void fail(final String message) {
+		System.out.println("FAILED: " + message);
+		failures++;
+	}
+
+	private static Configuration createConfiguration(boolean columnar, boolean parallel) {
+		final Configuration config = Configuration.createDefaultConfiguration();
+		config.setRandomSeed(1234);
+		config.setTimeStepsPerGeneration(TIME_STEPS_PER_GENERATION);
+		config.setColumnarEngine(columnar);
+		config.setParallelTimeStep(parallel);
+		return config;
+	}
+
+}
@@ -0,0 +1,49 @@
+package life;
+
+import java.util.List;
+
+/**
+ * Checks that the hall of fame of an archipelago never holds the same network
+ * twice, however many generations a champion survives. Exits with status 1 if
+ * any network appears more than once.
+ *
+ * Usage: java -cp bin life.HallOfFameCheck
+ */
+public class HallOfFameCheck {
+
+	private static final int EPOCHS = 12;
+
+	public static void main(String args[]) throws InterruptedException {
+		final Configuration config = Configuration.createDefaultConfiguration();
+		config.setRandomSeed(1234);
+		config.setGenerationSize(30);
+		config.setTimeStepsPerGeneration(500);
+		config.setNumIslands(2);
+		config.setMigrationInterval(1);
+		config.setStarted(true);
+
+		final Archipelago archipelago = new Archipelago(config);
+		int failures = 0;
+		for (int epoch = 0; epoch < EPOCHS; epoch++) {
+			archipelago.doEpoch();
+			final List<Archipelago.Champion> hallOfFame = archipelago.getHallOfFame();
+			for (int i = 0; i < hallOfFame.size(); i++) {
+				for (int j = i + 1; j < hallOfFame.size(); j++) {
+					if (hallOfFame.get(i).getBrain().getNeuralNet()
+							.equals(hallOfFame.get(j).getBrain().getNeuralNet())) {
+						System.out.println("FAILED: epoch " + epoch + " champions " + i + " and " + j
+								+ " share a network");
+						failures++;
+					}
+				}
+			}
+		}
+		archipelago.shutdown();
+
+		System.out.println(EPOCHS + " epochs, " + failures + " failures");
+		if (failures > 0) {
+			System.exit(1);
+		}
+	}
+
+}
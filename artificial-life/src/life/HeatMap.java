@@ -0,0 +1,81 @@
+package life;
+
+import java.awt.Color;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Counts, for each cell of a grid over the arena, the bot time steps spent
+ * there and the time steps in which a bot there saw a green or a red ball.
+ * Bots record themselves as they step, from any number of threads: each thread
+ * counts into one of several stripes of counters, so threads rarely touch the
+ * same counter, and the stripes are added up only when the map is read.
+ */
+public final class HeatMap {
+
+	// Cells along each side of the arena
+	public static final int SIZE = 64;
+
+	// Layers of counts, each SIZE * SIZE cells by [row][column]
+	public static final int BOTS = 0;
+	public static final int GREEN_SIGHTINGS = 1;
+	public static final int RED_SIGHTINGS = 2;
+	public static final int LAYERS = 3;
+
+	private static final int CELLS = SIZE * SIZE;
+
+	// Power of two, at least the number of cores
+	private static final int STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+
+	private final AtomicIntegerArray[] stripes = new AtomicIntegerArray[STRIPES];
+
+	HeatMap() {
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new AtomicIntegerArray(LAYERS * CELLS);
+		}
+	}
+
+	/**
+	 * Count a bot time step at the given point of the arena, along with the color
+	 * of any ball the bot saw
+	 */
+	void record(double x, double y, final Color seen) {
+		final AtomicIntegerArray stripe = stripes[(int) Thread.currentThread().getId() & (STRIPES - 1)];
+		final int cell = cell(y) * SIZE + cell(x);
+		stripe.incrementAndGet(BOTS * CELLS + cell);
+		if (seen == Color.GREEN) {
+			stripe.incrementAndGet(GREEN_SIGHTINGS * CELLS + cell);
+		} else if (seen == Color.RED) {
+			stripe.incrementAndGet(RED_SIGHTINGS * CELLS + cell);
+		}
+	}
+
+	private static int cell(double position) {
+		return Math.max(0, Math.min(SIZE - 1, (int) (position * SIZE)));
+	}
+
+	/**
+	 * Counts of every layer, [layer][row][column], summed across the stripes.
+	 * Only exact while no bots are recording.
+	 */
+	int[] totals() {
+		final int[] totals = new int[LAYERS * CELLS];
+		for (final AtomicIntegerArray stripe : stripes) {
+			for (int i = 0; i < totals.length; i++) {
+				totals[i] += stripe.get(i);
+			}
+		}
+		return totals;
+	}
+
+	/**
+	 * Start counting afresh. Only while no bots are recording.
+	 */
+	void clear() {
+		for (final AtomicIntegerArray stripe : stripes) {
+			for (int i = 0; i < stripe.length(); i++) {
+				stripe.set(i, 0);
+			}
+		}
+	}
+
+}
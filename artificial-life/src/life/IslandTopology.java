@@ -0,0 +1,14 @@
+package life;
+
+/**
+ * How islands of an Archipelago are connected for migration
+ */
+public enum IslandTopology {
+
+	// Each island sends its migrants to the next island, the last to the first
+	RING,
+
+	// Each island sends its migrants to every other island
+	FULLY_CONNECTED
+
+}
@@ -0,0 +1,42 @@
+package life;
+
+/**
+ * Parts of training that PhaseTimer measures
+ */
+public enum Phase {
+
+	// Moving the balls and sorting them into the grid
+	BALL_MOVEMENT("ball movement"),
+
+	// Finding the balls each bot sees and hears
+	SENSING("sensing"),
+
+	// Running the brains
+	INFERENCE("inference"),
+
+	// Turning and moving the bots
+	MOVEMENT("movement"),
+
+	// Scoring the balls the bots see
+	FITNESS_UPDATE("fitness update"),
+
+	// Ranking the bots at the end of a generation
+	SELECTION("selection"),
+
+	// Breeding the next generation
+	REPRODUCTION("reproduction"),
+
+	// Saving state every so many generations
+	AUTOSAVE("autosave");
+
+	private final String description;
+
+	Phase(final String description) {
+		this.description = description;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+}
@@ -0,0 +1,205 @@
+package life;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Nanoseconds spent in each Phase of training, and the number of times each
+ * was measured. Any number of threads may record at once.
+ *
+ * Phases of single bots are measured for each bot in the classic engine, so
+ * their totals add up the time of every thread stepping bots, while the
+ * columnar engine measures each pass over all the bots, where movement
+ * includes updating fitness.
+ *
+ * BotLife only measures while phase timing is enabled, keeping a timer for the
+ * generation being trained and adding it to the process wide total(), which is
+ * published over JMX as "life:type=PhaseTimer", when the generation finishes.
+ * Autosaves come between generations, so they go straight into the total and
+ * are reported on their own, see recordAutosave.
+ */
+public final class PhaseTimer implements PhaseTimerMBean {
+
+	private static final Phase[] PHASES = Phase.values();
+
+	private final LongAdder[] nanos = new LongAdder[PHASES.length];
+	private final LongAdder[] counts = new LongAdder[PHASES.length];
+
+	// Created and registered on first use
+	private static class Total {
+		private static final PhaseTimer TOTAL = register(new PhaseTimer());
+	}
+
+	public PhaseTimer() {
+		for (int i = 0; i < PHASES.length; i++) {
+			nanos[i] = new LongAdder();
+			counts[i] = new LongAdder();
+		}
+	}
+
+	private static PhaseTimer register(final PhaseTimer timer) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(timer, new ObjectName("life:type=PhaseTimer"));
+		} catch (JMException e) {
+			throw new RuntimeException(e);
+		}
+		return timer;
+	}
+
+	/**
+	 * Times of every finished generation of every BotLife in this process
+	 */
+	public static PhaseTimer total() {
+		return Total.TOTAL;
+	}
+
+	/**
+	 * Count the time from the given start until now as an autosave in the total,
+	 * and report it, when phase timing is enabled in the given configuration
+	 */
+	public static void recordAutosave(final Configuration config, long start) {
+		if (config.isPhaseTiming()) {
+			final long end = total().lap(Phase.AUTOSAVE, start);
+			System.out.println(String.format("Autosave took %.2f ms", (end - start) / 1_000_000.0));
+		}
+	}
+
+	/**
+	 * Count the time from the given start until now in the given phase, and
+	 * return now as the start of whatever comes next
+	 */
+	public long lap(final Phase phase, long start) {
+		final long now = System.nanoTime();
+		nanos[phase.ordinal()].add(now - start);
+		counts[phase.ordinal()].increment();
+		return now;
+	}
+
+	public long getNanos(final Phase phase) {
+		return nanos[phase.ordinal()].sum();
+	}
+
+	public long getCount(final Phase phase) {
+		return counts[phase.ordinal()].sum();
+	}
+
+	/**
+	 * Add everything counted here to the given timer
+	 */
+	public void addTo(final PhaseTimer timer) {
+		for (int i = 0; i < PHASES.length; i++) {
+			timer.nanos[i].add(nanos[i].sum());
+			timer.counts[i].add(counts[i].sum());
+		}
+	}
+
+	@Override
+	public void reset() {
+		for (int i = 0; i < PHASES.length; i++) {
+			nanos[i].reset();
+			counts[i].reset();
+		}
+	}
+
+	/**
+	 * Milliseconds spent in each phase measured, for example "ball movement 1.52
+	 * ms, ..."
+	 */
+	public String summary() {
+		final StringBuilder summary = new StringBuilder();
+		for (final Phase phase : PHASES) {
+			if (getCount(phase) == 0) {
+				continue;
+			}
+			if (summary.length() > 0) {
+				summary.append(", ");
+			}
+			summary.append(String.format("%s %.2f ms", phase.getDescription(), getNanos(phase) / 1_000_000.0));
+		}
+		return summary.toString();
+	}
+
+	@Override
+	public long getBallMovementNanos() {
+		return getNanos(Phase.BALL_MOVEMENT);
+	}
+
+	@Override
+	public long getBallMovementCount() {
+		return getCount(Phase.BALL_MOVEMENT);
+	}
+
+	@Override
+	public long getSensingNanos() {
+		return getNanos(Phase.SENSING);
+	}
+
+	@Override
+	public long getSensingCount() {
+		return getCount(Phase.SENSING);
+	}
+
+	@Override
+	public long getInferenceNanos() {
+		return getNanos(Phase.INFERENCE);
+	}
+
+	@Override
+	public long getInferenceCount() {
+		return getCount(Phase.INFERENCE);
+	}
+
+	@Override
+	public long getMovementNanos() {
+		return getNanos(Phase.MOVEMENT);
+	}
+
+	@Override
+	public long getMovementCount() {
+		return getCount(Phase.MOVEMENT);
+	}
+
+	@Override
+	public long getFitnessUpdateNanos() {
+		return getNanos(Phase.FITNESS_UPDATE);
+	}
+
+	@Override
+	public long getFitnessUpdateCount() {
+		return getCount(Phase.FITNESS_UPDATE);
+	}
+
+	@Override
+	public long getSelectionNanos() {
+		return getNanos(Phase.SELECTION);
+	}
+
+	@Override
+	public long getSelectionCount() {
+		return getCount(Phase.SELECTION);
+	}
+
+	@Override
+	public long getReproductionNanos() {
+		return getNanos(Phase.REPRODUCTION);
+	}
+
+	@Override
+	public long getReproductionCount() {
+		return getCount(Phase.REPRODUCTION);
+	}
+
+	@Override
+	public long getAutosaveNanos() {
+		return getNanos(Phase.AUTOSAVE);
+	}
+
+	@Override
+	public long getAutosaveCount() {
+		return getCount(Phase.AUTOSAVE);
+	}
+
+}
@@ -0,0 +1,47 @@
+package life;
+
+/**
+ * Management interface of the process wide PhaseTimer, nanoseconds spent in
+ * each phase of training and the number of times each was measured, added up
+ * over every finished generation and autosave while phase timing is enabled
+ */
+public interface PhaseTimerMBean {
+
+	long getBallMovementNanos();
+
+	long getBallMovementCount();
+
+	long getSensingNanos();
+
+	long getSensingCount();
+
+	long getInferenceNanos();
+
+	long getInferenceCount();
+
+	long getMovementNanos();
+
+	long getMovementCount();
+
+	long getFitnessUpdateNanos();
+
+	long getFitnessUpdateCount();
+
+	long getSelectionNanos();
+
+	long getSelectionCount();
+
+	long getReproductionNanos();
+
+	long getReproductionCount();
+
+	long getAutosaveNanos();
+
+	long getAutosaveCount();
+
+	/**
+	 * Start counting afresh
+	 */
+	void reset();
+
+}
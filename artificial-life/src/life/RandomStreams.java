@@ -0,0 +1,61 @@
+package life;
+
+import java.util.SplittableRandom;
+
+/**
+ * Derives independent random number streams from the run seed stored in the
+ * Configuration, so that every bot, ball and thread draws from its own
+ * generator (no contention) and a run can be reproduced exactly from its seed.
+ *
+ * Streams are identified by a path of numbers, for example the generation
+ * number followed by the purpose and the index of the bot, so the same stream
+ * is derived no matter which thread asks for it or when.
+ */
+public class RandomStreams {
+
+	// Purposes of the streams derived for each generation
+	public static final long BOTS = 1;
+	public static final long BALLS = 2;
+	public static final long BREEDING = 3;
+
+	// Odd constant spreading consecutive identifiers apart (golden ratio)
+	private static final long GAMMA = 0x9E3779B97F4A7C15L;
+
+	public static SplittableRandom create(long seed, long... path) {
+		long state = seed;
+		for (final long id : path) {
+			state = new SplittableRandom(state + ((id + 1) * GAMMA)).nextLong();
+		}
+		return new SplittableRandom(state);
+	}
+
+	/**
+	 * Stream for the bot at the given position of a generation's population
+	 */
+	public static SplittableRandom forBot(final Configuration config, long generation, int index) {
+		return create(config.getRandomSeed(), generation, BOTS, index);
+	}
+
+	/**
+	 * Stream for ball placement during a generation, each ball splits its own
+	 */
+	public static SplittableRandom forBalls(final Configuration config, long generation) {
+		return create(config.getRandomSeed(), generation, BALLS);
+	}
+
+	/**
+	 * Stream for selecting, breeding and mutating the next generation
+	 */
+	public static SplittableRandom forBreeding(final Configuration config, long generation) {
+		return create(config.getRandomSeed(), generation, BREEDING);
+	}
+
+	/**
+	 * Stream for breeding one offspring of a generation on its own, identified by
+	 * its place among the offspring
+	 */
+	public static SplittableRandom forOffspring(final Configuration config, long generation, int index) {
+		return create(config.getRandomSeed(), generation, BREEDING, index);
+	}
+
+}
@@ -0,0 +1,126 @@
+package life;
+
+/**
+ * Picks bots by rank straight from arrays of their fitness and ids, without
+ * sorting the whole population. Bots dropped by racing rank behind every bot
+ * that ran the whole generation; otherwise bots rank as Bot.compareTo orders
+ * them: by fitness, highest first, then by id, so ties always break the same
+ * way.
+ */
+final class Selection {
+
+	private Selection() {
+	}
+
+	/**
+	 * Whether bot a ranks ahead of bot b
+	 */
+	static boolean ranksBefore(final double[] fitness, final long[] ids, final boolean[] dropped, int a, int b) {
+		if (dropped[a] != dropped[b]) {
+			return dropped[b];
+		}
+		final int byFitness = Double.compare(fitness[b], fitness[a]);
+		if (byFitness != 0) {
+			return byFitness < 0;
+		}
+		return ids[a] > ids[b];
+	}
+
+	/**
+	 * Indices of the given number of best ranked bots, best first
+	 */
+	static int[] best(final double[] fitness, final long[] ids, final boolean[] dropped, int count) {
+		final int[] best = new int[Math.min(count, fitness.length)];
+		int found = 0;
+		for (int i = 0; i < fitness.length; i++) {
+			if (found < best.length || ranksBefore(fitness, ids, dropped, i, best[best.length - 1])) {
+				// Insert into the short ranked list, dropping its last if full
+				int j = (found < best.length) ? found++ : best.length - 1;
+				while (j > 0 && ranksBefore(fitness, ids, dropped, i, best[j - 1])) {
+					best[j] = best[j - 1];
+					j--;
+				}
+				best[j] = i;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Flags the given number of worst ranked bots
+	 */
+	static boolean[] worst(final double[] fitness, final long[] ids, final boolean[] dropped, int count) {
+		final int numBots = fitness.length;
+		final boolean[] worst = new boolean[numBots];
+		if (count <= 0) {
+			return worst;
+		}
+
+		final int[] order = new int[numBots];
+		for (int i = 0; i < numBots; i++) {
+			order[i] = i;
+		}
+		final int firstWorst = Math.max(0, numBots - count);
+		select(fitness, ids, dropped, order, firstWorst);
+		for (int i = firstWorst; i < numBots; i++) {
+			worst[order[i]] = true;
+		}
+		return worst;
+	}
+
+	/**
+	 * Quickselect: move the bot of rank k to order[k], with every better ranked
+	 * bot before it and every worse ranked bot after it
+	 */
+	private static void select(final double[] fitness, final long[] ids, final boolean[] dropped, final int[] order,
+			int k) {
+		int left = 0;
+		int right = order.length - 1;
+		while (left < right) {
+
+			// Median of the first, middle and last as pivot
+			final int middle = (left + right) >>> 1;
+			if (ranksBefore(fitness, ids, dropped, order[middle], order[left])) {
+				swap(order, left, middle);
+			}
+			if (ranksBefore(fitness, ids, dropped, order[right], order[left])) {
+				swap(order, left, right);
+			}
+			if (ranksBefore(fitness, ids, dropped, order[right], order[middle])) {
+				swap(order, middle, right);
+			}
+			final int pivot = order[middle];
+
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (ranksBefore(fitness, ids, dropped, order[i], pivot)) {
+					i++;
+				}
+				while (ranksBefore(fitness, ids, dropped, pivot, order[j])) {
+					j--;
+				}
+				if (i <= j) {
+					swap(order, i, j);
+					i++;
+					j--;
+				}
+			}
+
+			if (k <= j) {
+				right = j;
+			} else if (k >= i) {
+				left = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private static void swap(final int[] order, int a, int b) {
+		final int swapped = order[a];
+		order[a] = order[b];
+		order[b] = swapped;
+	}
+
+}
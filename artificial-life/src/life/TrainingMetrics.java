@@ -0,0 +1,95 @@
+package life;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Latest progress of training, written by the training thread after every time
+ * step and read by displays whenever they like. Writing is a few stores to
+ * volatile fields, so training is not held up however often it writes or
+ * however seldom anybody reads.
+ *
+ * Only one thread may write. Results of finished generations are queued, so a
+ * reader that samples less often than generations finish still sees them all.
+ */
+public final class TrainingMetrics {
+
+	private volatile long generationNumber = 0;
+	private volatile long timeStepNumber = 0;
+
+	// Time steps run since training started, for working out a rate
+	private volatile long timeSteps = 0;
+
+	private final ConcurrentLinkedQueue<GenerationResult> generationResults = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Fitness of a finished generation, as percentages of the most possible
+	 */
+	public static final class GenerationResult {
+
+		private final long generationNumber;
+		private final double bestFitness;
+		private final double averageFitness;
+
+		GenerationResult(long generationNumber, double bestFitness, double averageFitness) {
+			this.generationNumber = generationNumber;
+			this.bestFitness = bestFitness;
+			this.averageFitness = averageFitness;
+		}
+
+		public long getGenerationNumber() {
+			return generationNumber;
+		}
+
+		public double getBestFitness() {
+			return bestFitness;
+		}
+
+		public double getAverageFitness() {
+			return averageFitness;
+		}
+
+	}
+
+	/**
+	 * Record where the given bot life has got to after a time step, along with
+	 * the results of the generation it just finished if it started a new one
+	 */
+	public void recordTimeStep(final BotLife botLife) {
+		this.timeSteps = this.timeSteps + 1;
+		this.generationNumber = botLife.getGenerationNumber();
+		this.timeStepNumber = botLife.getTimeStepNumber();
+		if (this.timeStepNumber == 0) {
+			this.generationResults.add(new GenerationResult(this.generationNumber - 1,
+					Math.round(10_000.0 * botLife.getBestBotFitness()) / 100.0,
+					Math.round(10_000.0 * botLife.getAverageBotFitness()) / 100.0));
+		}
+	}
+
+	/**
+	 * Record where a newly loaded bot life is, without counting a time step
+	 */
+	public void recordLoaded(final BotLife botLife) {
+		this.generationNumber = botLife.getGenerationNumber();
+		this.timeStepNumber = botLife.getTimeStepNumber();
+	}
+
+	public long getGenerationNumber() {
+		return generationNumber;
+	}
+
+	public long getTimeStepNumber() {
+		return timeStepNumber;
+	}
+
+	public long getTimeSteps() {
+		return timeSteps;
+	}
+
+	/**
+	 * Oldest result of a finished generation not yet taken, or null
+	 */
+	public GenerationResult pollGenerationResult() {
+		return generationResults.poll();
+	}
+
+}
@@ -0,0 +1,185 @@
+package life;
+
+import java.awt.Color;
+import java.util.List;
+
+import arena.BallTape;
+import brain.BotBrain;
+
+/**
+ * Picture of a BotLife at one time step, for displays to read while training
+ * carries on. BotLife publishes a new snapshot now and then rather than
+ * changing one in place, so a snapshot never changes once published and any
+ * number of threads may read it without locking.
+ *
+ * Holds where the running bots and the balls are, what each bot sees, and
+ * copies of the brains of the first bots of the population, enough to start a
+ * display of them.
+ */
+public final class WorldSnapshot {
+
+	private final long generationNumber;
+	private final long timeStepNumber;
+
+	// Bots still running, filled in by BotLife before publishing
+	final double[] botX;
+	final double[] botY;
+	final double[] orientation;
+	final double[] scanAngle;
+	final double[] scanDistance;
+	final double[] fitness;
+	final Color[] sightColor;
+
+	// Balls, filled in by BotLife before publishing
+	final double[] ballX;
+	final double[] ballY;
+	final double[] ballXVel;
+	final double[] ballYVel;
+	final double[] ballSize;
+	final Color[] ballColor;
+
+	// Copies of the brains of the first bots, fittest first after a generation
+	private final List<BotBrain> brains;
+
+	// Ball motion being played, if any, and the frame the balls are at
+	private final BallTape ballTape;
+	private final int ballTapeFrame;
+
+	// Totals of the heat map of the generation so far, or null, see HeatMap
+	private final int[] heat;
+
+	WorldSnapshot(long generationNumber, long timeStepNumber, int numBots, int numBalls, final List<BotBrain> brains,
+			final BallTape ballTape, int ballTapeFrame, final int[] heat) {
+		this.generationNumber = generationNumber;
+		this.timeStepNumber = timeStepNumber;
+		this.botX = new double[numBots];
+		this.botY = new double[numBots];
+		this.orientation = new double[numBots];
+		this.scanAngle = new double[numBots];
+		this.scanDistance = new double[numBots];
+		this.fitness = new double[numBots];
+		this.sightColor = new Color[numBots];
+		this.ballX = new double[numBalls];
+		this.ballY = new double[numBalls];
+		this.ballXVel = new double[numBalls];
+		this.ballYVel = new double[numBalls];
+		this.ballSize = new double[numBalls];
+		this.ballColor = new Color[numBalls];
+		this.brains = brains;
+		this.ballTape = ballTape;
+		this.ballTapeFrame = ballTapeFrame;
+		this.heat = heat;
+	}
+
+	public long getGenerationNumber() {
+		return generationNumber;
+	}
+
+	public long getTimeStepNumber() {
+		return timeStepNumber;
+	}
+
+	public int getNumBots() {
+		return botX.length;
+	}
+
+	public double getBotX(int bot) {
+		return botX[bot];
+	}
+
+	public double getBotY(int bot) {
+		return botY[bot];
+	}
+
+	public double getOrientation(int bot) {
+		return orientation[bot];
+	}
+
+	/**
+	 * Degrees the bot's sight is turned from straight ahead
+	 */
+	public double getScanAngle(int bot) {
+		return scanAngle[bot];
+	}
+
+	public double getBotSize() {
+		return Bot.SIZE;
+	}
+
+	public double getHeadSize() {
+		return Bot.HEAD_SIZE;
+	}
+
+	public double getScanDistance(int bot) {
+		return scanDistance[bot];
+	}
+
+	public double getFitness(int bot) {
+		return fitness[bot];
+	}
+
+	/**
+	 * Color of the ball the bot sees, or null
+	 */
+	public Color getSightColor(int bot) {
+		return sightColor[bot];
+	}
+
+	public int getNumBalls() {
+		return ballX.length;
+	}
+
+	public double getBallX(int ball) {
+		return ballX[ball];
+	}
+
+	public double getBallY(int ball) {
+		return ballY[ball];
+	}
+
+	public double getBallXVel(int ball) {
+		return ballXVel[ball];
+	}
+
+	public double getBallYVel(int ball) {
+		return ballYVel[ball];
+	}
+
+	public double getBallSize(int ball) {
+		return ballSize[ball];
+	}
+
+	public Color getBallColor(int ball) {
+		return ballColor[ball];
+	}
+
+	/**
+	 * Copies of the brains of the first bots of the population, free to run
+	 */
+	public List<BotBrain> getBrains() {
+		return brains;
+	}
+
+	public BallTape getBallTape() {
+		return ballTape;
+	}
+
+	public int getBallTapeFrame() {
+		return ballTapeFrame;
+	}
+
+	/**
+	 * Whether heat maps were enabled when the snapshot was taken
+	 */
+	public boolean hasHeat() {
+		return heat != null;
+	}
+
+	/**
+	 * Count of the given layer of the heat map at the given cell, see HeatMap
+	 */
+	public int getHeat(int layer, int row, int column) {
+		return heat[(layer * HeatMap.SIZE + row) * HeatMap.SIZE + column];
+	}
+
+}
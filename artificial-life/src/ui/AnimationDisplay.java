@@ -1,31 +1,27 @@
 package ui;
 
-import java.awt.BasicStroke;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Container;
 import java.awt.Graphics;
-import java.awt.Graphics2D;
-import java.awt.Stroke;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
-import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import javax.swing.JFrame;
 import javax.swing.JPanel;
-import javax.swing.Timer;
+import javax.swing.SwingUtilities;
 
-import arena.Ball;
-import life.Bot;
 import life.BotLife;
 import life.Configuration;
+import life.WorldSnapshot;
 
-public class AnimationDisplay implements ActionListener {
+public class AnimationDisplay {
 
-	// Have the time rate be configurable 1 to 1000 FPS
-	private final Timer timer;
+	// Most frames waiting to be painted, the oldest are dropped beyond this
+	private static final int FRAME_QUEUE_SIZE = 3;
 
 	// Don't make this configurable without a lot of testing...
 	private final double pixels = 600;
@@ -33,129 +29,51 @@ public class AnimationDisplay implements ActionListener {
 	// Display all the progress of each time step
 	private final AnimationPane animationPane;
 
-	// Maintains state of the bots and balls in the arena
-	private volatile BotLife botLife;
+	// Maintains state of the bots and balls in the arena, only touched by the
+	// simulation thread once it has started
+	private BotLife botLife;
 	private ControlWindow controlWindow;
 	private final Configuration config;
 	private JFrame frame;
-	
-	private volatile long timeSinceLastReset = System.currentTimeMillis();
 
-	// UI Elements
-	public class AnimationPane extends JPanel {
-
-		private static final long serialVersionUID = -6659698050645923783L;
-
-		Graphics2D g2;
-		AffineTransform original;
-		Stroke originalStroke;
-		BasicStroke wideStroke;
+	private long timeSinceLastReset = System.currentTimeMillis();
 
-		private void drawBot(final Graphics2D g, final Bot bot) {
-			
-			// Convert to position in arena
-			int x = (int) (pixels * bot.getxPos());
-			int y = (int) (pixels * bot.getyPos());
+	// Runs the time steps of the display while it is shown, null when stopped
+	private volatile Thread simulationThread;
 
-			int width = (int) (pixels * bot.getSize());
-			int height = (int) (pixels * bot.getSize());
-			int headSize = (int) (pixels * bot.getHeadSize());
+	// Frames of the arena from the simulation thread, painted on the event
+	// dispatch thread
+	private final BlockingQueue<WorldSnapshot> frames = new ArrayBlockingQueue<>(FRAME_QUEUE_SIZE);
 
-			// Get angle of bot and angle of vision
-			double orientation = bot.getOrientation();
-			double scanAngle = bot.getScanAngle(config.getScanDegrees()) - 90; // Straight up from head
-			int scanLength = (int) (pixels * bot.getScanDistance(config.getAntennaLength()));
-
-			newShape();
-
-			// original = g2.getTransform();
-			g2.rotate(Math.toRadians(orientation), x + width / 2, y + height / 2);
-
-			// Draw body
-			float fitnessRange = (float) (bot.getFitness() / 1000.0f);
-			if (fitnessRange > 0.2) {
-				fitnessRange = 0.2f;
-			}
-			if (fitnessRange < -0.2) {
-				fitnessRange = -0.2f;
-			}
-			Color botColor = new Color(0.5f - fitnessRange, 0.5f + fitnessRange, 0.5f);
-			g2.setColor(Color.BLACK);
-			g2.drawRect(x, y, width, height);
-			g2.setColor(botColor);
-			g2.fillRect(x, y, width, height);
-
-			// Draw head
-			g2.setColor(Color.BLACK);
-			g2.drawRect(x + headSize, y - headSize, headSize, headSize);
-			g2.setColor(botColor);
-			g2.fillRect(x + headSize, y - headSize, headSize, headSize);
-
-			// Draw feeler
-			int middleOfHead = x + headSize + headSize / 2;
-			int topOfHead = y - headSize;
-			int xAdjustment = (int) (Math.cos(Math.toRadians(scanAngle)) * scanLength);
-			int yAdjustment = (int) (Math.sin(Math.toRadians(scanAngle)) * scanLength);
-
-			// Change color to intersection of any balls.
-			final Color colorSeen = bot.getIntersectedBallColor();
-
-			// Draw line
-			if (colorSeen != null) {
-				g2.setColor(bot.getIntersectedBallColor());
-			} else {
-				g2.setColor(Color.BLACK);
-			}
-			g2.drawLine(middleOfHead, topOfHead, middleOfHead + xAdjustment, topOfHead + yAdjustment);
-		}
-
-		private void drawBall(final Graphics2D g, final Ball ball) {
-
-			newShape();
+	// UI Elements
+	public class AnimationPane extends JPanel {
 
-			int ballX = (int) (pixels * ball.getxPos());
-			int ballY = (int) (pixels * ball.getyPos());
-			int ballSize = (int) (pixels * ball.getSize());
+		private static final long serialVersionUID = -6659698050645923783L;
 
-			// Draw the ball outline
-			g2.setColor(Color.BLACK);
-			g2.drawOval(ballX, ballY, ballSize, ballSize);
+		// Draws each frame from cached sprites into a reused back buffer
+		private final ArenaRenderer renderer = new ArenaRenderer((int) pixels);
 
-			// Fill the ball color
-			g2.setColor(ball.getColor());
-			g2.fillOval(ballX, ballY, ballSize, ballSize);
-		}
+		// Last frame drawn, shown again until a newer one arrives
+		private BufferedImage shown;
 
 		public void paintComponent(Graphics g) {
 
 			super.paintComponent(g);
 
-			// Store variables
-			this.g2 = (Graphics2D) g;
-			this.original = g2.getTransform();
-			this.wideStroke = new BasicStroke(8.0f);
-			this.originalStroke = g2.getStroke();
-
 			setSize((int) pixels, (int) pixels);
 			setBackground(Color.white);
 
-			// Draw all the balls
-			for (final Ball ball : AnimationDisplay.this.botLife.getBalls()) {
-				drawBall(g2, ball);
+			// Draw the newest frame, dropping any older ones still queued
+			WorldSnapshot newest = null;
+			WorldSnapshot next;
+			while ((next = frames.poll()) != null) {
+				newest = next;
 			}
-
-			// Draw all the bots
-			for (Bot bot : AnimationDisplay.this.botLife.getBots()) {
-				drawBot(g2, bot);
+			if (newest != null) {
+				this.shown = this.renderer.render(newest);
 			}
-		}
-
-		public void newShape() {
-			if (this.original != null) {
-				this.g2.setTransform(original);
-			}
-			if (g2.getStroke() == this.wideStroke) {
-				g2.setStroke(this.originalStroke);
+			if (this.shown != null) {
+				g.drawImage(this.shown, 0, 0, null);
 			}
 		}
 
@@ -170,7 +88,7 @@ public class AnimationDisplay implements ActionListener {
 		// Setup the frame
 		this.frame = new JFrame("Bot Arena - Generation #0");
 
-		// Stop the timer when the window is closed
+		// Stop the simulation when the window is closed
 		frame.setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE);
 		frame.addWindowListener(new WindowAdapter() {
 			@Override
@@ -187,21 +105,16 @@ public class AnimationDisplay implements ActionListener {
 		pane.add(animationPane, BorderLayout.CENTER);
 
 		frame.setVisible(false);
-
-		// Setup the animation timer
-		this.timer = new Timer(1000 / config.getFramesPerSecond(), this);
-		this.timer.setInitialDelay(0);
-		this.timer.setCoalesce(false);
 	}
 
 	public synchronized void startAnimation() {
 
 		this.frame.setVisible(true);
 
-		this.timer.setDelay(1000 / config.getFramesPerSecond());
-		
-		if (!this.timer.isRunning()) {
-			this.timer.start();
+		if (this.simulationThread == null) {
+			this.simulationThread = new Thread(this::simulate, "Bot Arena");
+			this.simulationThread.setDaemon(true);
+			this.simulationThread.start();
 		}
 	}
 
@@ -209,29 +122,83 @@ public class AnimationDisplay implements ActionListener {
 
 		this.frame.setVisible(false);
 
-		if (this.timer.isRunning()) {
-			this.timer.stop();
+		// Wait for the last time step, so a restart never runs two at once
+		final Thread stopping = this.simulationThread;
+		if (stopping != null) {
+			this.simulationThread = null;
+			stopping.interrupt();
+			try {
+				stopping.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
 		}
 	}
 
-	@Override
-	public synchronized void actionPerformed(ActionEvent arg0) {
+	/**
+	 * Step the bots and balls at the frame rate, queueing a frame after each time
+	 * step, until stopped. Painting never waits on the time steps, and the time
+	 * steps only wait on painting for as long as it takes to drop a frame.
+	 */
+	private void simulate() {
+		long nextFrameTime = System.nanoTime();
+		WorldSnapshot lastQueued = null;
+		while (this.simulationThread == Thread.currentThread()) {
+
+			// Show where the whole training population has been, as often as
+			// training publishes it
+			if (config.isHeatmap()) {
+				final WorldSnapshot training = this.controlWindow.getLatestSnapshot();
+				if (training != lastQueued) {
+					lastQueued = training;
+					queue(training);
+					final String title = "Bot Arena Heat Map - Generation #" + training.getGenerationNumber();
+					SwingUtilities.invokeLater(() -> this.frame.setTitle(title));
+				}
+				nextFrameTime = waitForNextFrame(nextFrameTime);
+				continue;
+			}
 
-		// Update positions of all balls and bots
-		this.botLife.doTimeStep(false);
+			// Update positions of all balls and bots
+			this.botLife.doTimeStep(false);
 
-		long timeElapsed = System.currentTimeMillis() - this.timeSinceLastReset;
-		if (timeElapsed >= (config.getTimeBetweenUpdates() * 1000)) {
-			// We finished a generation, get the latest from the control
-			this.botLife = controlWindow.getLatestBots(config.getDisplayBots());
-			this.frame.setTitle("Bot Arena - Generation #" + this.controlWindow.getCurrentGeneration());
-			this.timeSinceLastReset = System.currentTimeMillis();
+			long timeElapsed = System.currentTimeMillis() - this.timeSinceLastReset;
+			if (timeElapsed >= (config.getTimeBetweenUpdates() * 1000)) {
+				// We finished a generation, get the latest from the control
+				this.botLife = controlWindow.getLatestBots(config.getDisplayBots());
+				final String title = "Bot Arena - Generation #" + this.controlWindow.getCurrentGeneration();
+				SwingUtilities.invokeLater(() -> this.frame.setTitle(title));
+				this.timeSinceLastReset = System.currentTimeMillis();
+			}
+
+			// Next we will redraw everything accordingly
+			queue(this.botLife.takeSnapshot());
+			nextFrameTime = waitForNextFrame(nextFrameTime);
 		}
+	}
 
-		// Next we will redraw everything accordingly...
+	// Queue a frame for painting, dropping the oldest if painting has fallen behind
+	private void queue(final WorldSnapshot rendered) {
+		while (!this.frames.offer(rendered)) {
+			this.frames.poll();
+		}
 		this.animationPane.repaint();
-		
-		this.timer.setDelay(1000 / config.getFramesPerSecond());
+	}
+
+	// Wait for the next frame, without trying to catch up if we fell behind, and
+	// return when the one after is due
+	private long waitForNextFrame(long nextFrameTime) {
+		final long frameTime = nextFrameTime + 1_000_000_000L / Math.max(1, config.getFramesPerSecond());
+		final long wait = frameTime - System.nanoTime();
+		if (wait <= 0) {
+			return System.nanoTime();
+		}
+		try {
+			Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+		} catch (InterruptedException e) {
+			// Stopping, the loop sees it is no longer the simulation thread
+		}
+		return frameTime;
 	}
 
 }
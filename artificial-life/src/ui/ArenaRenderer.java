@@ -0,0 +1,259 @@
+package ui;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import life.HeatMap;
+import life.WorldSnapshot;
+
+/**
+ * Draws frames of the arena into a back buffer that is reused from frame to
+ * frame. Bots and balls are drawn once into sprites, bots for each of a number
+ * of orientations and fitness colors, and each frame copies the sprites into
+ * place. The feelers of all the bots are then drawn together, one path per
+ * color. A readout of frames per second and time per frame goes on top.
+ *
+ * Frames that carry a heat map are drawn as the heat map instead, one pixel
+ * per cell scaled up to the arena, so they take as long whatever the number of
+ * bots.
+ *
+ * Only for the event dispatch thread.
+ */
+class ArenaRenderer {
+
+	// Bots are drawn turned to the nearest 5 degrees
+	private static final int ORIENTATIONS = 72;
+
+	// Shades from red through grey to green, as fitness goes from -200 to 200
+	private static final int FITNESS_SHADES = 9;
+	private static final float FITNESS_RANGE = 0.2f;
+
+	private final int pixels;
+
+	private final BufferedImage backBuffer;
+	private final Graphics2D back;
+
+	// Bot sprites by [shade][orientation], drawn when first needed
+	private final BufferedImage[][] botSprites = new BufferedImage[FITNESS_SHADES][ORIENTATIONS];
+	private int botSpriteSize = -1;
+	private int headSpriteSize = -1;
+
+	// Ball sprites by size and color
+	private final Map<Long, BufferedImage> ballSprites = new HashMap<>();
+
+	// Feelers of every bot, one path per color seen (null for none)
+	private final Map<Color, Path2D.Double> feelers = new HashMap<>();
+
+	// Heat map cells, drawn scaled up to the back buffer
+	private final BufferedImage heatImage = new BufferedImage(HeatMap.SIZE, HeatMap.SIZE, BufferedImage.TYPE_INT_RGB);
+	private final int[] heatPixels = new int[HeatMap.SIZE * HeatMap.SIZE];
+
+	// For the readout, frames drawn this second and the rates of the last second
+	private long secondStart = System.nanoTime();
+	private int framesThisSecond = 0;
+	private long renderNanosThisSecond = 0;
+	private double framesPerSecond = 0.0;
+	private double millisPerFrame = 0.0;
+
+	ArenaRenderer(int pixels) {
+		this.pixels = pixels;
+		this.backBuffer = new BufferedImage(pixels, pixels, BufferedImage.TYPE_INT_RGB);
+		this.back = backBuffer.createGraphics();
+	}
+
+	/**
+	 * Draw the given frame, returning the back buffer holding it
+	 */
+	BufferedImage render(final WorldSnapshot world) {
+		final long start = System.nanoTime();
+
+		if (world.hasHeat()) {
+			drawHeat(world);
+			drawReadout(System.nanoTime() - start, Color.WHITE);
+			return backBuffer;
+		}
+
+		back.setColor(Color.WHITE);
+		back.fillRect(0, 0, pixels, pixels);
+
+		// Draw all the balls
+		for (int i = 0; i < world.getNumBalls(); i++) {
+			final BufferedImage sprite = ballSprite((int) (pixels * world.getBallSize(i)), world.getBallColor(i));
+			back.drawImage(sprite, (int) (pixels * world.getBallX(i)), (int) (pixels * world.getBallY(i)), null);
+		}
+
+		// Draw all the bots, then all their feelers
+		final int width = (int) (pixels * world.getBotSize());
+		final int headSize = (int) (pixels * world.getHeadSize());
+		if (width != botSpriteSize || headSize != headSpriteSize) {
+			clearBotSprites(width, headSize);
+		}
+		for (final Path2D.Double path : feelers.values()) {
+			path.reset();
+		}
+		for (int i = 0; i < world.getNumBots(); i++) {
+			drawBot(world, i, width, headSize);
+		}
+		for (final Map.Entry<Color, Path2D.Double> feeler : feelers.entrySet()) {
+			back.setColor((feeler.getKey() != null) ? feeler.getKey() : Color.BLACK);
+			back.draw(feeler.getValue());
+		}
+
+		drawReadout(System.nanoTime() - start, Color.BLACK);
+		return backBuffer;
+	}
+
+	/**
+	 * Bots in blue, green sightings in green and red sightings in red, each the
+	 * brighter the more of them a cell has compared to the busiest cell
+	 */
+	private void drawHeat(final WorldSnapshot world) {
+		final double[] logMax = new double[HeatMap.LAYERS];
+		for (int layer = 0; layer < HeatMap.LAYERS; layer++) {
+			int max = 0;
+			for (int row = 0; row < HeatMap.SIZE; row++) {
+				for (int column = 0; column < HeatMap.SIZE; column++) {
+					max = Math.max(max, world.getHeat(layer, row, column));
+				}
+			}
+			logMax[layer] = Math.log1p(max);
+		}
+
+		for (int row = 0; row < HeatMap.SIZE; row++) {
+			for (int column = 0; column < HeatMap.SIZE; column++) {
+				final int red = intensity(world.getHeat(HeatMap.RED_SIGHTINGS, row, column),
+						logMax[HeatMap.RED_SIGHTINGS]);
+				final int green = intensity(world.getHeat(HeatMap.GREEN_SIGHTINGS, row, column),
+						logMax[HeatMap.GREEN_SIGHTINGS]);
+				final int blue = intensity(world.getHeat(HeatMap.BOTS, row, column), logMax[HeatMap.BOTS]);
+				heatPixels[row * HeatMap.SIZE + column] = (red << 16) | (green << 8) | blue;
+			}
+		}
+		heatImage.setRGB(0, 0, HeatMap.SIZE, HeatMap.SIZE, heatPixels, 0, HeatMap.SIZE);
+		back.drawImage(heatImage, 0, 0, pixels, pixels, null);
+	}
+
+	// Counts on a log scale, so quiet cells still show
+	private static int intensity(int count, double logMax) {
+		return (logMax > 0) ? (int) (255 * Math.log1p(count) / logMax) : 0;
+	}
+
+	private void drawBot(final WorldSnapshot world, int bot, int width, int headSize) {
+
+		// Convert to position in arena, turning about the middle of the body
+		final double centerX = (int) (pixels * world.getBotX(bot)) + width / 2.0;
+		final double centerY = (int) (pixels * world.getBotY(bot)) + width / 2.0;
+		final double orientation = world.getOrientation(bot);
+
+		final BufferedImage sprite = botSprite(shade(world.getFitness(bot)), orientationIndex(orientation));
+		back.drawImage(sprite, (int) centerX - sprite.getWidth() / 2, (int) centerY - sprite.getHeight() / 2, null);
+
+		// Feeler from the middle of the top of the head, relative to the middle of
+		// the body before turning
+		final double scanAngle = Math.toRadians(world.getScanAngle(bot) - 90); // Straight up from head
+		final double scanLength = (int) (pixels * world.getScanDistance(bot));
+		final double fromX = headSize + headSize / 2 - width / 2.0;
+		final double fromY = -headSize - width / 2.0;
+		final double toX = fromX + (int) (Math.cos(scanAngle) * scanLength);
+		final double toY = fromY + (int) (Math.sin(scanAngle) * scanLength);
+
+		final double cos = Math.cos(Math.toRadians(orientation));
+		final double sin = Math.sin(Math.toRadians(orientation));
+		final Path2D.Double path = feelers.computeIfAbsent(world.getSightColor(bot), color -> new Path2D.Double());
+		path.moveTo(centerX + fromX * cos - fromY * sin, centerY + fromX * sin + fromY * cos);
+		path.lineTo(centerX + toX * cos - toY * sin, centerY + toX * sin + toY * cos);
+	}
+
+	private static int shade(double fitness) {
+		final float fitnessRange = Math.max(-FITNESS_RANGE, Math.min(FITNESS_RANGE, (float) (fitness / 1000.0f)));
+		return Math.round((fitnessRange + FITNESS_RANGE) / (2 * FITNESS_RANGE) * (FITNESS_SHADES - 1));
+	}
+
+	private static int orientationIndex(double orientation) {
+		final int index = (int) Math.round(orientation * ORIENTATIONS / 360.0) % ORIENTATIONS;
+		return (index < 0) ? index + ORIENTATIONS : index;
+	}
+
+	private void clearBotSprites(int width, int headSize) {
+		for (final BufferedImage[] sprites : botSprites) {
+			Arrays.fill(sprites, null);
+		}
+		this.botSpriteSize = width;
+		this.headSpriteSize = headSize;
+	}
+
+	private BufferedImage botSprite(int shade, int orientation) {
+		if (botSprites[shade][orientation] != null) {
+			return botSprites[shade][orientation];
+		}
+
+		// Big enough for the body and head turned any way, centered on the body
+		final int width = botSpriteSize;
+		final int headSize = headSpriteSize;
+		final int size = 2 * (width + headSize) + 2;
+		final int x = size / 2 - width / 2;
+		final int y = size / 2 - width / 2;
+		final BufferedImage sprite = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+		final Graphics2D g2 = sprite.createGraphics();
+		g2.rotate(Math.toRadians(orientation * 360.0 / ORIENTATIONS), size / 2.0, size / 2.0);
+
+		// Draw body
+		final float fitnessRange = -FITNESS_RANGE + shade * (2 * FITNESS_RANGE) / (FITNESS_SHADES - 1);
+		final Color botColor = new Color(0.5f - fitnessRange, 0.5f + fitnessRange, 0.5f);
+		g2.setColor(Color.BLACK);
+		g2.drawRect(x, y, width, width);
+		g2.setColor(botColor);
+		g2.fillRect(x, y, width, width);
+
+		// Draw head
+		g2.setColor(Color.BLACK);
+		g2.drawRect(x + headSize, y - headSize, headSize, headSize);
+		g2.setColor(botColor);
+		g2.fillRect(x + headSize, y - headSize, headSize, headSize);
+		g2.dispose();
+
+		botSprites[shade][orientation] = sprite;
+		return sprite;
+	}
+
+	private BufferedImage ballSprite(int size, final Color color) {
+		final Long key = ((long) size << 32) | (color.getRGB() & 0xFFFFFFFFL);
+		BufferedImage sprite = ballSprites.get(key);
+		if (sprite == null) {
+			sprite = new BufferedImage(size + 1, size + 1, BufferedImage.TYPE_INT_ARGB);
+			final Graphics2D g2 = sprite.createGraphics();
+
+			// Draw the ball outline
+			g2.setColor(Color.BLACK);
+			g2.drawOval(0, 0, size, size);
+
+			// Fill the ball color
+			g2.setColor(color);
+			g2.fillOval(0, 0, size, size);
+			g2.dispose();
+			ballSprites.put(key, sprite);
+		}
+		return sprite;
+	}
+
+	private void drawReadout(long renderNanos, final Color color) {
+		framesThisSecond++;
+		renderNanosThisSecond += renderNanos;
+		final long now = System.nanoTime();
+		if (now - secondStart >= 1_000_000_000L) {
+			framesPerSecond = framesThisSecond * 1_000_000_000.0 / (now - secondStart);
+			millisPerFrame = renderNanosThisSecond / 1_000_000.0 / framesThisSecond;
+			secondStart = now;
+			framesThisSecond = 0;
+			renderNanosThisSecond = 0;
+		}
+		back.setColor(color);
+		back.drawString(String.format("%.0f fps, %.2f ms per frame", framesPerSecond, millisPerFrame), 8, 16);
+	}
+
+}
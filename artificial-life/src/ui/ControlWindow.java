@@ -8,6 +8,7 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
@@ -21,6 +22,7 @@ import javax.swing.JSeparator;
 import javax.swing.JSlider;
 import javax.swing.JTextArea;
 import javax.swing.SwingConstants;
+import javax.swing.Timer;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import javax.swing.event.DocumentEvent;
@@ -31,12 +33,19 @@ import io.StateSerializer;
 import life.Bot;
 import life.BotLife;
 import life.Configuration;
+import life.PhaseTimer;
+import life.TrainingMetrics;
+import life.WorldSnapshot;
 
 public class ControlWindow implements ActionListener, ChangeListener, DocumentListener {
 
 	private AtomicBoolean running = new AtomicBoolean(false);
 	private final Object lock = new Object();
 
+	// File chosen with the Save State button, saved by the training thread
+	// between time steps as bred genomes are overwritten in place
+	private final AtomicReference<File> pendingSave = new AtomicReference<>();
+
 	private Configuration config = Configuration.createDefaultConfiguration();
 
 	// Maintains state of the bots and balls in the arena
@@ -45,12 +54,23 @@ public class ControlWindow implements ActionListener, ChangeListener, DocumentLi
 	// Frequency of autosave
 	private static final int AUTOSAVE_FREQUENCY = 10;
 
+	// Training progress, written by the training thread and shown by the poller
+	private final TrainingMetrics metrics = new TrainingMetrics();
+
+	// Times a second the poller shows training progress
+	private static final int METRICS_PER_SECOND = 10;
+
+	// Time steps run and time when progress was last shown, for the rate
+	private long lastTimeSteps = 0;
+	private long lastMetricsTime = System.nanoTime();
+
 	/* Start of UI Elements */
 	private final JFrame frame;
 
 	private final JButton startStopTraining;
 	private final JProgressBar trainingProgressBar;
 	private final JLabel generationNumberLabel;
+	private final JLabel timeStepRateLabel;
 
 	private final JButton loadTrainingState;
 	private final JButton saveTrainingState;
@@ -126,6 +146,11 @@ public class ControlWindow implements ActionListener, ChangeListener, DocumentLi
 
 	private final JCheckBox wallsAreSolid;
 
+	// Performance Parameters
+	private final JCheckBox parallelTimeStep;
+	private final JCheckBox columnarEngine;
+	private final JCheckBox heatmapView;
+
 	// Display Options
 
 	private final JLabel botsToShowLabel;
@@ -146,6 +171,7 @@ public class ControlWindow implements ActionListener, ChangeListener, DocumentLi
 
 	private final Runnable task;
 	private final Thread botTrainingThread;
+	private final Timer metricsPoller;
 
 	// Shows UI of what training is producing
 	private AnimationDisplay display;
@@ -180,6 +206,11 @@ public class ControlWindow implements ActionListener, ChangeListener, DocumentLi
 		this.generationNumberLabel.setFont(new Font("Mono", Font.BOLD, 16));
 		trainingControlRow.add(generationNumberLabel);
 
+		// Time Steps per Second Label
+		this.timeStepRateLabel = new JLabel("0 steps/s");
+		this.timeStepRateLabel.setFont(new Font("Mono", Font.BOLD, 16));
+		trainingControlRow.add(timeStepRateLabel);
+
 		listPane.add(trainingControlRow);
 
 		/*************************************************************************/
@@ -644,6 +675,22 @@ public class ControlWindow implements ActionListener, ChangeListener, DocumentLi
 
 		/*************************************************************************/
 
+		final JPanel parallelTimeStepRow = new JPanel();
+
+		parallelTimeStep = new JCheckBox("Parallel Time Steps", false);
+		parallelTimeStep.setFont(new Font("Mono", Font.BOLD, 16));
+		parallelTimeStep.addActionListener(this);
+		parallelTimeStepRow.add(parallelTimeStep);
+
+		columnarEngine = new JCheckBox("Columnar Engine", false);
+		columnarEngine.setFont(new Font("Mono", Font.BOLD, 16));
+		columnarEngine.addActionListener(this);
+		parallelTimeStepRow.add(columnarEngine);
+
+		listPane.add(parallelTimeStepRow);
+
+		/*************************************************************************/
+
 		// Add horizontal separator
 		JSeparator s4 = new JSeparator();
 		s4.setOrientation(SwingConstants.HORIZONTAL);
@@ -738,6 +785,11 @@ public class ControlWindow implements ActionListener, ChangeListener, DocumentLi
 		showBotsButton.addActionListener(this);
 		showBotsRow.add(showBotsButton);
 
+		heatmapView = new JCheckBox("Heat Map", false);
+		heatmapView.setFont(new Font("Mono", Font.BOLD, 16));
+		heatmapView.addActionListener(this);
+		showBotsRow.add(heatmapView);
+
 		listPane.add(showBotsRow);
 
 		/*************************************************************************/
@@ -757,60 +809,41 @@ public class ControlWindow implements ActionListener, ChangeListener, DocumentLi
 				while (true) {
 					Thread.yield();
 
-					// Wait for memory allocations to be ready
+					// Wait for training to start, or for a save to be asked for
 					try {
 						synchronized (lock) {
-							lock.wait();
+							while (!ControlWindow.this.running.get()
+									&& ControlWindow.this.pendingSave.get() == null) {
+								lock.wait();
+							}
 						}
 					} catch (InterruptedException e) {
 						// Start
 					}
+					savePending();
 
 					while (ControlWindow.this.running.get()) {
 
-						// Start work
-						// long startTime = System.nanoTime();
-
-						synchronized (ControlWindow.this) {
-
-							ControlWindow.this.botLife.doTimeStep(true);
-
-						}
+						// The display reads snapshots, so time steps run without locking
+						ControlWindow.this.botLife.doTimeStep(true);
 
-						// Complete work
-						// long endTime = System.nanoTime();
-						// long timeStepsPerSecond = 1_000_000_000 / ((long) (endTime - startTime));
-
-						// Update stats
-						long currentTimeStep = ControlWindow.this.botLife.getTimeStepNumber();
-						long currentGeneration = ControlWindow.this.botLife.getGenerationNumber();
-
-						double bestFitness = Math.round(10_000.0 * ControlWindow.this.botLife.getBestBotFitness())
-								/ 100.0;
-						double avgFitness = Math.round(10_000.0 * ControlWindow.this.botLife.getAverageBotFitness())
-								/ 100.0;
+						// Only record progress here, the poller shows it
+						ControlWindow.this.metrics.recordTimeStep(ControlWindow.this.botLife);
 
 						// Every new generation save state to autosave file...
-						if (currentTimeStep == 0) {
-
+						if (ControlWindow.this.botLife.getTimeStepNumber() == 0) {
+							long currentGeneration = ControlWindow.this.botLife.getGenerationNumber();
 							if (ControlWindow.this.autoSaveOn.isSelected()
 									&& ((currentGeneration % AUTOSAVE_FREQUENCY) == 0)) {
 								(new File("./saves")).mkdirs();
 								File autosavePath = new File("saves/autosave.bot");
+								final long saveStart = System.nanoTime();
 								StateSerializer.saveState(autosavePath, ControlWindow.this.botLife);
+								PhaseTimer.recordAutosave(ControlWindow.this.botLife.getConfig(), saveStart);
 							}
-
-							ControlWindow.this.outputMessageArea.append("Generation #" + (currentGeneration - 1)
-									+ " highest fitness: " + bestFitness + "%, average fitness: " + avgFitness + "%\n");
-							int lastCharPosition = ControlWindow.this.outputMessageArea.getText().length();
-							ControlWindow.this.outputMessageArea.setCaretPosition(lastCharPosition);
 						}
 
-						double progress = 100.0
-								* (((double) currentTimeStep) / ((double) config.getTimeStepsPerGeneration()));
-						ControlWindow.this.trainingProgressBar.setValue((int) progress);
-						ControlWindow.this.generationNumberLabel.setText("Generation #" + currentGeneration);
-
+						savePending();
 					}
 				}
 			}
@@ -819,6 +852,48 @@ public class ControlWindow implements ActionListener, ChangeListener, DocumentLi
 		// Start thread
 		botTrainingThread = new Thread(task);
 		botTrainingThread.start();
+
+		// Show progress at a fixed rate on the event dispatch thread
+		metricsPoller = new Timer(1000 / METRICS_PER_SECOND, event -> showMetrics());
+		metricsPoller.start();
+	}
+
+	/**
+	 * Save to the file chosen with the Save State button, if any. Only on the
+	 * training thread, so no generation is bred while the bots are written.
+	 */
+	private void savePending() {
+		final File saveFile = this.pendingSave.getAndSet(null);
+		if (saveFile != null) {
+			StateSerializer.saveState(saveFile, this.botLife);
+		}
+	}
+
+	/**
+	 * Show the latest training progress, and the results of any generations
+	 * finished since last shown
+	 */
+	private void showMetrics() {
+		TrainingMetrics.GenerationResult result;
+		while ((result = this.metrics.pollGenerationResult()) != null) {
+			this.outputMessageArea.append("Generation #" + result.getGenerationNumber() + " highest fitness: "
+					+ result.getBestFitness() + "%, average fitness: " + result.getAverageFitness() + "%\n");
+			int lastCharPosition = this.outputMessageArea.getText().length();
+			this.outputMessageArea.setCaretPosition(lastCharPosition);
+		}
+
+		double progress = 100.0
+				* (((double) this.metrics.getTimeStepNumber()) / ((double) config.getTimeStepsPerGeneration()));
+		this.trainingProgressBar.setValue((int) progress);
+		this.generationNumberLabel.setText("Generation #" + this.metrics.getGenerationNumber());
+
+		final long now = System.nanoTime();
+		final long timeSteps = this.metrics.getTimeSteps();
+		final long timeStepsPerSecond = (timeSteps - this.lastTimeSteps) * 1_000_000_000L
+				/ Math.max(1, now - this.lastMetricsTime);
+		this.timeStepRateLabel.setText(timeStepsPerSecond + " steps/s");
+		this.lastTimeSteps = timeSteps;
+		this.lastMetricsTime = now;
 	}
 
 	public static void main(String args[]) {
@@ -871,13 +946,19 @@ public class ControlWindow implements ActionListener, ChangeListener, DocumentLi
 				updated();
 				this.config = this.botLife.getConfig();
 
-				ControlWindow.this.generationNumberLabel.setText("Generation #" + this.botLife.getGenerationNumber());
+				this.metrics.recordLoaded(this.botLife);
 			}
 		}
 
 		// Button Clicked
 		if (actionEvent.getSource() == this.saveTrainingState) {
-			StateSerializer.saveState(this.frame, this.botLife);
+			final File saveFile = StateSerializer.chooseSaveFile(this.frame);
+			if (saveFile != null) {
+				this.pendingSave.set(saveFile);
+				synchronized (lock) {
+					this.lock.notifyAll();
+				}
+			}
 		}
 
 		// Button Clicked
@@ -973,6 +1054,10 @@ public class ControlWindow implements ActionListener, ChangeListener, DocumentLi
 
 		this.config.setSolidWalls(ControlWindow.this.wallsAreSolid.isSelected());
 
+		this.config.setParallelTimeStep(ControlWindow.this.parallelTimeStep.isSelected());
+		this.config.setColumnarEngine(ControlWindow.this.columnarEngine.isSelected());
+		this.config.setHeatmap(ControlWindow.this.heatmapView.isSelected());
+
 		ControlWindow.this.botsToShowValue.setText(Integer.toString(this.botsToShowSlider.getValue()));
 		this.config.setDisplayBots(this.botsToShowSlider.getValue());
 
@@ -984,26 +1069,39 @@ public class ControlWindow implements ActionListener, ChangeListener, DocumentLi
 	}
 
 	/**
-	 * Creates a temport view of the bots based on current bot population and
-	 * configuration
+	 * Creates a temport view of the bots based on the latest snapshot of the bot
+	 * population, without waiting on training
 	 */
-	protected synchronized BotLife getLatestBots(final int numBots) {
+	protected BotLife getLatestBots(final int numBots) {
+		final WorldSnapshot snapshot = this.botLife.getSnapshot();
 
-		// Create sub sample of bot population to display
+		// Create sub sample of bot population to display, from copies of their brains
 		final List<Bot> botCopies = new ArrayList<Bot>();
-		for (int i = 0; i < numBots && i < this.botLife.getBots().size(); i++) {
-			Bot bot = this.botLife.getBots().get(i);
-			botCopies.add(new Bot(bot.getBrain()));
+		for (int i = 0; i < numBots && i < snapshot.getBrains().size(); i++) {
+			botCopies.add(new Bot(snapshot.getBrains().get(i)));
 		}
 
 		// Create balls based on current configuration
 		final List<Ball> ballCopies = new ArrayList<Ball>();
-		for (final Ball ball : this.botLife.getBalls()) {
-			ballCopies.add(new Ball(ball.getSize(), ball.getxPos(), ball.getyPos(), ball.getxVel(), ball.getyVel(),
-					ball.getColor()));
+		for (int i = 0; i < snapshot.getNumBalls(); i++) {
+			ballCopies.add(new Ball(snapshot.getBallSize(i), snapshot.getBallX(i), snapshot.getBallY(i),
+					snapshot.getBallXVel(i), snapshot.getBallYVel(i), snapshot.getBallColor(i)));
 		}
 
-		return new BotLife(config, botCopies, ballCopies);
+		// Follow the ball motion already recorded for training
+		final BotLife latest = new BotLife(config, botCopies, ballCopies);
+		if (config.isBallTape() && snapshot.getBallTape() != null) {
+			latest.shareBallTape(snapshot.getBallTape(), snapshot.getBallTapeFrame());
+		}
+		return latest;
+	}
+
+	/**
+	 * The latest snapshot of the whole training population, without waiting on
+	 * training
+	 */
+	protected WorldSnapshot getLatestSnapshot() {
+		return this.botLife.getSnapshot();
 	}
 
 	protected long getCurrentGeneration() {
@@ -1028,6 +1126,9 @@ public class ControlWindow implements ActionListener, ChangeListener, DocumentLi
 		this.redDetrimentSlider.setValue(config.getRedBallDetriment());
 		this.ballSizeSlider.setValue((int) (config.getBallSize() * 100));
 		this.wallsAreSolid.setSelected(config.isSolidWalls());
+		this.parallelTimeStep.setSelected(config.isParallelTimeStep());
+		this.columnarEngine.setSelected(config.isColumnarEngine());
+		this.heatmapView.setSelected(config.isHeatmap());
 		this.botsToShowSlider.setValue(config.getDisplayBots());
 		this.fpsSlider.setValue(config.getFramesPerSecond());
 		this.refreshTimeSlider.setValue(config.getTimeBetweenUpdates());
@@ -0,0 +1 @@
+java.exe -cp bin cli.HeadlessTrainer %*
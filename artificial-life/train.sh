@@ -0,0 +1,2 @@
+#!/bin/sh
+java -cp bin cli.HeadlessTrainer "$@"